@@ -17,8 +17,8 @@ val NknSdk by project {
 
     libraryDependencies add { dependency("org.json:json:20180130") } // JSON Parser and generator
 
-    libraryDependencies add { dependency("com.github.Darkyenus:DaveWebb:v1.2") } // Rest API
     libraryDependencies add { dependency("com.google.protobuf:protobuf-java:3.6.1") } // Proto-buffer implementation
+    libraryDependencies add { dependency("org.reactivestreams:reactive-streams:1.0.3") } // Flow-controlled message streams
 
     libraryDependencies add { dependency("net.i2p.crypto:eddsa:0.3.0") } // Crypto, Ed25519
     libraryDependencies add { dependency("org.bouncycastle:bcprov-jdk15on:1.64") } // Crypto, The rest
@@ -79,6 +79,97 @@ val DropBenchmarkExample by project(path("examples")) {
 
 }
 
+val MaskingBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.MaskingBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val DeflateBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.DeflateBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val TransactionSigningBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.TransactionSigningBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val Base58BenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.Base58BenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val KeyAgreementBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.KeyAgreementBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val CryptoProviderBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.CryptoProviderBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
+val RandomBenchmarkExample by project(path("examples")) {
+
+    projectDependencies add { ProjectDependency(NknSdk, false) }
+
+    repositories add { Jitpack }
+    libraryDependencies add { dependency("com.github.Darkyenus:tproll:v1.3.1") } // Logging frontend
+
+    mainClass set { "jsmith.nknsdk.examples.RandomBenchmarkEx" }
+
+    runDirectory set { projectRoot.get() }
+
+}
+
 val MulticastExample by project(path("examples")) {
 
     projectDependencies add { ProjectDependency(NknSdk, false) }
@@ -0,0 +1,60 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import jsmith.nknsdk.client.NKNExplorer;
+import jsmith.nknsdk.utils.Base58;
+import jsmith.nknsdk.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ */
+public class Base58BenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Base58BenchmarkEx.class);
+
+    private static final int ADDRESSES = 1_000;
+    private static final int ITERATIONS = 1_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final String[] addresses = new String[ADDRESSES];
+        final byte[][] decoded = new byte[ADDRESSES][];
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = Wallet.createNew().getAddress();
+            decoded[i] = Base58.decode(addresses[i]);
+        }
+
+        final int operations = ADDRESSES * ITERATIONS;
+        int blackhole = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long encodeStart = System.nanoTime();
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (byte[] address : decoded) blackhole += Base58.encode(address).length();
+            }
+            final long encodeTime = System.nanoTime() - encodeStart;
+
+            final long decodeStart = System.nanoTime();
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (String address : addresses) blackhole += Base58.decode(address).length;
+            }
+            final long decodeTime = System.nanoTime() - decodeStart;
+
+            final long validateStart = System.nanoTime();
+            for (int it = 0; it < ITERATIONS / 10; it++) {
+                for (String address : addresses) if (NKNExplorer.isAddressValid(address)) blackhole++;
+            }
+            final long validateTime = System.nanoTime() - validateStart;
+
+            LOG.info("Round {}: encode {} ns/op, decode {} ns/op, address validation {} ns/op", round,
+                    String.format("%.0f", (double) encodeTime / operations),
+                    String.format("%.0f", (double) decodeTime / operations),
+                    String.format("%.0f", (double) validateTime / (operations / 10)));
+        }
+        LOG.debug("{}", blackhole);
+    }
+
+}
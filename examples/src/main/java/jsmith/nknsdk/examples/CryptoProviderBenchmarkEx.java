@@ -0,0 +1,91 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import jsmith.nknsdk.utils.CryptoProvider;
+import jsmith.nknsdk.utils.DefaultCryptoProvider;
+import jsmith.nknsdk.utils.JcaCryptoProvider;
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
+import net.i2p.crypto.eddsa.spec.EdDSAPrivateKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ */
+public class CryptoProviderBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CryptoProviderBenchmarkEx.class);
+
+    private static final int ITERATIONS = 5_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final List<CryptoProvider> providers = new ArrayList<>();
+        providers.add(new DefaultCryptoProvider());
+        if (JcaCryptoProvider.isSupported()) {
+            providers.add(new JcaCryptoProvider());
+        } else {
+            LOG.warn("JDK doesn't support Ed25519 and X25519, JCA provider skipped");
+        }
+
+        final SecureRandom random = new SecureRandom();
+        final byte[] seed = new byte[32];
+        random.nextBytes(seed);
+        final EdDSAPrivateKey key = new EdDSAPrivateKey(new EdDSAPrivateKeySpec(seed, EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.ED_25519)));
+        final byte[] curvePublic = new byte[32];
+        final byte[] curveSecret = new byte[32];
+        random.nextBytes(curvePublic);
+        random.nextBytes(curveSecret);
+        final byte[] hash = new byte[32];
+        final byte[] chunk = new byte[1024];
+        final byte[] nonce = new byte[24];
+        random.nextBytes(chunk);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (CryptoProvider provider : providers) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) provider.sha256(chunk);
+                final double sha256 = opsPerSecond(start);
+
+                start = System.nanoTime();
+                byte[] signature = null;
+                for (int i = 0; i < ITERATIONS; i++) signature = provider.sign(key, hash);
+                final double sign = opsPerSecond(start);
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) provider.verify(key.getAbyte(), hash, signature);
+                final double verify = opsPerSecond(start);
+
+                final byte[] shared = new byte[32];
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) provider.sharedKey(shared, curvePublic, curveSecret);
+                final double sharedKey = opsPerSecond(start);
+
+                final ByteBuffer box = ByteBuffer.allocate(chunk.length + 16);
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    box.clear();
+                    provider.secretBox(shared, ByteBuffer.wrap(chunk), box, nonce);
+                }
+                final double secretBox = opsPerSecond(start);
+
+                LOG.info("Round {}, {}: sha256 1 KiB {}/s, sign {}/s, verify {}/s, shared key {}/s, secret box 1 KiB {}/s", round, provider.getName(),
+                        String.format("%.0f", sha256), String.format("%.0f", sign), String.format("%.0f", verify),
+                        String.format("%.0f", sharedKey), String.format("%.0f", secretBox));
+            }
+        }
+    }
+
+    private static double opsPerSecond(long start) {
+        return ITERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+
+}
@@ -0,0 +1,143 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ *
+ */
+public class DeflateBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeflateBenchmarkEx.class);
+
+    private static final int MESSAGES = 200_000;
+
+    public static void main(String[] args) throws InvalidDataException {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final Random random = new Random(0);
+        final String[] names = {"setClient request", "setClient response", "updateSigChainBlockHash", "binary packet 1 KB"};
+        final Payload[] payloads = {
+                i -> text(new JSONObject()
+                        .put("Action", "setClient")
+                        .put("Addr", "client" + i + "." + hex(random, 32))),
+                i -> text(new JSONObject()
+                        .put("Action", "setClient")
+                        .put("Error", 0)
+                        .put("Desc", "success")
+                        .put("Result", new JSONObject()
+                                .put("node", new JSONObject()
+                                        .put("addr", "tcp://10.0." + (i & 0xFF) + ".1:30001")
+                                        .put("rpcAddr", "10.0." + (i & 0xFF) + ".1:30003")
+                                        .put("id", hex(random, 32))
+                                        .put("pubkey", hex(random, 32))
+                                        .put("syncState", "PERSIST_FINISHED"))
+                                .put("sigChainBlockHash", hex(random, 32)))),
+                i -> text(new JSONObject()
+                        .put("Action", "updateSigChainBlockHash")
+                        .put("Error", 0)
+                        .put("Desc", "success")
+                        .put("Result", hex(random, 32))),
+                i -> {
+                    // Encrypted payloads look random
+                    final byte[] packet = new byte[1024];
+                    random.nextBytes(packet);
+                    final BinaryFrame frame = new BinaryFrame();
+                    frame.setPayload(ByteBuffer.wrap(packet));
+                    return frame;
+                }
+        };
+
+        for (int p = 0; p < payloads.length; p++) {
+            LOG.info("{}:", names[p]);
+            run("  uncompressed", null, payloads[p]);
+            run("  context takeover", deflate(false, 0), payloads[p]);
+            run("  no context takeover", deflate(true, 0), payloads[p]);
+            run("  context takeover, threshold " + PerMessageDeflateExtension.DEFAULT_COMPRESSION_THRESHOLD, deflate(false, PerMessageDeflateExtension.DEFAULT_COMPRESSION_THRESHOLD), payloads[p]);
+        }
+    }
+
+    private static PerMessageDeflateExtension deflate(boolean noContextTakeover, int threshold) {
+        final PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+        extension.setClientNoContextTakeover(noContextTakeover);
+        extension.setServerNoContextTakeover(noContextTakeover);
+        extension.setCompressionThreshold(threshold);
+        return extension;
+    }
+
+    private static void run(String name, PerMessageDeflateExtension extension, Payload payload) throws InvalidDataException {
+        PerMessageDeflateExtension sender = null, receiver = null;
+        if (extension != null) {
+            // Both ends of one connection, as if the server answered with exactly the offered parameters
+            sender = (PerMessageDeflateExtension) extension.copyInstance();
+            receiver = (PerMessageDeflateExtension) extension.copyInstance();
+            sender.acceptProvidedExtensionAsClient(extension.getProvidedExtensionAsClient());
+            receiver.acceptProvidedExtensionAsServer(extension.getProvidedExtensionAsClient());
+        }
+
+        final DataFrame[] frames = new DataFrame[MESSAGES];
+        long payloadBytes = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            frames[i] = payload.create(i);
+            payloadBytes += frames[i].getPayloadData().remaining();
+        }
+
+        long wireBytes = 0;
+        final long encodeStart = System.nanoTime();
+        for (DataFrame frame : frames) {
+            if (sender != null) sender.encodeFrame(frame);
+            wireBytes += wireSize(frame.getPayloadData().remaining());
+        }
+        final long encodeTime = System.nanoTime() - encodeStart;
+
+        final long decodeStart = System.nanoTime();
+        for (DataFrame frame : frames) {
+            if (receiver != null) receiver.decodeFrame(frame);
+        }
+        final long decodeTime = System.nanoTime() - decodeStart;
+
+        LOG.info("{}: {} B payload -> {} B on wire per message ({}%), encode {} us, decode {} us per message",
+                name,
+                payloadBytes / MESSAGES,
+                wireBytes / MESSAGES,
+                String.format("%.1f", 100.0 * wireBytes / (payloadBytes + (long) MESSAGES * wireSize(0))),
+                String.format("%.2f", encodeTime / 1000.0 / MESSAGES),
+                String.format("%.2f", decodeTime / 1000.0 / MESSAGES));
+    }
+
+    // Header of a masked client frame
+    private static int wireSize(int payloadLength) {
+        final int header = payloadLength <= 125 ? 2 : payloadLength <= 0xFFFF ? 4 : 10;
+        return header + 4 + payloadLength;
+    }
+
+    private static DataFrame text(JSONObject json) {
+        final TextFrame frame = new TextFrame();
+        frame.setPayload(ByteBuffer.wrap(json.toString().getBytes(StandardCharsets.UTF_8)));
+        return frame;
+    }
+
+    private static String hex(Random random, int bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < bytes; i++) {
+            sb.append(String.format("%02x", random.nextInt(256)));
+        }
+        return sb.toString();
+    }
+
+    private interface Payload {
+        DataFrame create(int i);
+    }
+
+}
@@ -0,0 +1,42 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import jsmith.nknsdk.wallet.Wallet;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ */
+public class KeyAgreementBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyAgreementBenchmarkEx.class);
+
+    private static final int PEERS = 1_000;
+    private static final int ITERATIONS = 10;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final Wallet wallet = Wallet.createNew();
+        final String[] peers = new String[PEERS];
+        for (int i = 0; i < PEERS; i++) {
+            peers[i] = "peer." + Hex.toHexString(Wallet.createNew().getPublicKey());
+        }
+
+        int blackhole = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            for (int it = 0; it < ITERATIONS; it++) {
+                for (String peer : peers) blackhole += wallet.getSharedKey(peer)[0];
+            }
+            final long time = System.nanoTime() - start;
+
+            LOG.info("Round {}: {} key agreements/s", round, String.format("%.0f", PEERS * ITERATIONS / (time / 1e9)));
+        }
+        LOG.debug("{}", blackhole);
+    }
+
+}
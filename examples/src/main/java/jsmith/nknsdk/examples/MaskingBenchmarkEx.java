@@ -0,0 +1,73 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import org.java_websocket.util.ByteBufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ *
+ */
+public class MaskingBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingBenchmarkEx.class);
+
+    public static void main(String[] args) {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final int[] sizes = {64, 1024, 64 * 1024, 1024 * 1024};
+        final Random random = new Random(0);
+
+        for (int size : sizes) {
+            final byte[] data = new byte[size];
+            random.nextBytes(data);
+            final int maskKey = random.nextInt();
+
+            for (boolean direct : new boolean[]{false, true}) {
+                final ByteBuffer source = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                final ByteBuffer dest = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                source.put(data).flip();
+
+                final double byteMBs = measure(source, dest, () -> maskByteAtATime(source, dest, maskKey, size), size);
+                final double wordMBs = measure(source, dest, () -> ByteBufferUtils.mask(source, dest, maskKey, size), size);
+
+                LOG.info("{} B, {} buffers: byte loop {} MB/s, word loop {} MB/s",
+                        size, direct ? "direct" : "heap", String.format("%.1f", byteMBs), String.format("%.1f", wordMBs));
+            }
+        }
+    }
+
+    // The loop Draft_6455 used before
+    private static void maskByteAtATime(ByteBuffer source, ByteBuffer dest, int maskKey, int length) {
+        final ByteBuffer maskkey = ByteBuffer.allocate(4);
+        maskkey.putInt(maskKey);
+        for (int i = 0; i < length; i++) {
+            dest.put((byte) (source.get() ^ maskkey.get(i % 4)));
+        }
+    }
+
+    private static double measure(ByteBuffer source, ByteBuffer dest, Runnable op, int size) {
+        final long warmupBytes = 256L * 1024 * 1024;
+        final long measuredBytes = 1024L * 1024 * 1024;
+
+        for (long done = 0; done < warmupBytes; done += size) {
+            source.rewind();
+            dest.clear();
+            op.run();
+        }
+
+        final long start = System.nanoTime();
+        for (long done = 0; done < measuredBytes; done += size) {
+            source.rewind();
+            dest.clear();
+            op.run();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        return (measuredBytes / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+}
@@ -34,7 +34,7 @@ public class MulticastEx {
         clientSender.simpleMessagesProtocol()
                 .onNewMessage(receivedMessage -> {
                     if (receivedMessage.isText) {
-                        System.out.println("Sender: New text from " + receivedMessage.from + "\n  ==> " + receivedMessage.textData);
+                        System.out.println("Sender: New text from " + receivedMessage.from + "\n  ==> " + receivedMessage.getTextData());
                     } else if (receivedMessage.isBinary) {
                         System.out.println("Sender: New binary from " + receivedMessage.from + "\n  ==> 0x" + Hex.toHexString(receivedMessage.binaryData.toByteArray()).toUpperCase());
                     }
@@ -58,7 +58,7 @@ public class MulticastEx {
         promises.forEach(p -> p.whenComplete((response, error) -> {
             if (error == null) {
                 System.out.println("Response from " + response.from);
-                System.out.println("  ==> " + (response.isAck ? "[ACK]" : response.isText ? response.textData : ("0x" + Hex.toHexString(response.binaryData.toByteArray()).toUpperCase())));
+                System.out.println("  ==> " + (response.isAck ? "[ACK]" : response.isText ? response.getTextData() : ("0x" + Hex.toHexString(response.binaryData.toByteArray()).toUpperCase())));
             } else {
                 System.out.println("Error: " + error.toString());
             }
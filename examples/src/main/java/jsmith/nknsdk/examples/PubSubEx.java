@@ -77,7 +77,7 @@ public class PubSubEx {
             subscriberClient = new NKNClient(new Identity(identifier, pubsubWallet));
             subscriberClient.simpleMessagesProtocol().onNewMessage(msg -> {
                 if (msg.isText) {
-                    System.out.println("New text from " + msg.from + "\n  ==> " + msg.textData);
+                    System.out.println("New text from " + msg.from + "\n  ==> " + msg.getTextData());
                 } else if (msg.isBinary) {
                     System.out.println("New binary from " + msg.from + "\n  ==> 0x" + Hex.toHexString(msg.binaryData.toByteArray()).toUpperCase());
                 }
@@ -0,0 +1,68 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import com.iwebpp.crypto.TweetNaclFast;
+import jsmith.nknsdk.utils.Crypto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ *
+ */
+public class RandomBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RandomBenchmarkEx.class);
+
+    private static final int PER_THREAD = 200_000;
+    private static final int ROUNDS = 3;
+
+    private static final SecureRandom shared = new SecureRandom();
+
+    public static void main(String[] args) throws InterruptedException {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        LOG.info("{} cores", Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                final double sharedIds = run(threads, () -> {
+                    final byte[] id = new byte[4];
+                    shared.nextBytes(id);
+                });
+                final double ids = run(threads, Crypto::nextRandom4B);
+                final double sharedNonces = run(threads, () -> TweetNaclFast.randombytes(24));
+                final double nonces = run(threads, Crypto::nextBoxNonce);
+
+                LOG.info("Round {}, {} threads: message ids {}/s (shared SecureRandom {}/s), box nonces {}/s (shared SecureRandom {}/s)", round, threads,
+                        String.format("%.0f", ids), String.format("%.0f", sharedIds),
+                        String.format("%.0f", nonces), String.format("%.0f", sharedNonces));
+            }
+        }
+    }
+
+    private static double run(int threads, Runnable generate) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PER_THREAD; i++) generate.run();
+                done.countDown();
+            }).start();
+        }
+
+        final long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (double) threads * PER_THREAD / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+}
@@ -0,0 +1,63 @@
+package jsmith.nknsdk.examples;
+
+import com.darkyen.tproll.TPLogger;
+import jsmith.nknsdk.wallet.AssetTransfer;
+import jsmith.nknsdk.wallet.Wallet;
+import jsmith.nknsdk.wallet.transactions.TransferToT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ */
+public class TransactionSigningBenchmarkEx {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionSigningBenchmarkEx.class);
+
+    private static final int TRANSACTIONS = 20_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        LogUtils.setupLogging(TPLogger.INFO);
+
+        final Wallet wallet = Wallet.createNew();
+        final String[] recipients = new String[16];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = Wallet.createNew().getAddress();
+        }
+
+        final List<AssetTransfer> transfers = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transfers.add(new AssetTransfer(recipients[i % recipients.length], new BigDecimal("0.0001").multiply(new BigDecimal(i + 1))));
+        }
+
+        LOG.info("Signing {} transfers, {} cores", TRANSACTIONS, Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < ROUNDS; round++) {
+            final long sequentialStart = System.nanoTime();
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                final AssetTransfer transfer = transfers.get(i);
+                final TransferToT tx = new TransferToT();
+                tx.setSenderProgramHash(wallet.getProgramHash());
+                tx.setRecipientAddress(transfer.toAddress);
+                tx.setAmountLongValue(transfer.amount.multiply(new BigDecimal(100000000)).longValue());
+                tx.setNonce(i);
+                tx.setFeeInLongValue(0);
+                wallet.buildTransaction(tx);
+            }
+            final long sequentialTime = System.nanoTime() - sequentialStart;
+
+            final long batchStart = System.nanoTime();
+            wallet.tx().buildTransfers(transfers, BigDecimal.ZERO, 0);
+            final long batchTime = System.nanoTime() - batchStart;
+
+            LOG.info("Round {}: one at a time {} tx/s, batch {} tx/s", round,
+                    String.format("%.0f", TRANSACTIONS / (sequentialTime / 1e9)),
+                    String.format("%.0f", TRANSACTIONS / (batchTime / 1e9)));
+        }
+    }
+
+}
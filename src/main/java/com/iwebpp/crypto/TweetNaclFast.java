@@ -4,6 +4,7 @@
 package com.iwebpp.crypto;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -557,6 +558,105 @@ public final class TweetNaclFast {
             return ret;
         }
 
+        /*
+         * @description
+         *   Encrypts and authenticates remaining bytes of message into out,
+         *   without zero-padded copies of the message. Works with heap, direct and read-only buffers.
+         *   Writes overheadLength + message.remaining() bytes and advances both buffers.
+         *   Buffers must not overlap.
+         *
+         *   Returns false if out has not enough space remaining or the nonce is invalid.
+         * */
+        public boolean box(ByteBuffer message, ByteBuffer out, byte [] theNonce) {
+            if (!(message!=null && out!=null && theNonce!=null && theNonce.length==nonceLength &&
+                    out.remaining()>=message.remaining()+overheadLength))
+                return false;
+
+            final int tagpos = out.position();
+            out.position(tagpos + overheadLength);
+
+            final byte [] tag = new byte[overheadLength];
+            xsalsa20poly1305(message, out, message.remaining(), theNonce, tag, true);
+            for (int i = 0; i < tag.length; i ++)
+                out.put(tagpos+i, tag[i]);
+
+            return true;
+        }
+
+        /*
+         * @description
+         *   Authenticates and decrypts remaining bytes of box into out,
+         *   without zero-padded copies of the box. Works with heap, direct and read-only buffers.
+         *   Writes box.remaining() - overheadLength bytes and advances both buffers.
+         *   Buffers must not overlap.
+         *
+         *   Returns false if authentication fails, out has not enough space remaining or the nonce is invalid.
+         *   Positions are not changed and nothing is left in out then.
+         * */
+        public boolean open(ByteBuffer box, ByteBuffer out, byte [] theNonce) {
+            if (!(box!=null && out!=null && theNonce!=null && theNonce.length==nonceLength &&
+                    box.remaining()>=overheadLength && out.remaining()>=box.remaining()-overheadLength))
+                return false;
+
+            final int boxpos = box.position(), outpos = out.position();
+            final int mlen = box.remaining()-overheadLength;
+
+            final byte [] tag = new byte[overheadLength], expected = new byte[overheadLength];
+            box.get(expected);
+            xsalsa20poly1305(box, out, mlen, theNonce, tag, false);
+
+            if (crypto_verify_16(tag, 0, expected, 0) != 0) {
+                // Decrypted in the same pass as authenticated, so don't leave unauthenticated plaintext around
+                for (int i = 0; i < mlen; i ++)
+                    out.put(outpos+i, (byte) 0);
+                box.position(boxpos);
+                out.position(outpos);
+                return false;
+            }
+
+            return true;
+        }
+
+        /*
+         * XSalsa20 stream xor from src to dst with Poly1305 of the ciphertext, one 64 byte block at a time.
+         * First 32 bytes of the key stream are the Poly1305 key, as in crypto_secretbox.
+         * */
+        private void xsalsa20poly1305(ByteBuffer src, ByteBuffer dst, int len, byte [] theNonce, byte [] tag, boolean encrypt) {
+            final byte [] s = new byte[32], z = new byte[16], x = new byte[64], block = new byte[64];
+
+            crypto_core_hsalsa20(s, theNonce, key, sigma);
+            for (int i = 0; i < 8; i++) z[i] = theNonce[i+16];
+
+            crypto_core_salsa20(x, z, s, sigma);
+            final poly1305 auth = new poly1305(x);
+
+            int xpos = 32;
+            while (len > 0) {
+                if (xpos == 64) {
+                    int u = 1;
+                    for (int i = 8; i < 16; i++) {
+                        u = u + (z[i] & 0xff) | 0;
+                        z[i] = (byte) (u & 0xff);
+                        u >>>= 8;
+                    }
+                    crypto_core_salsa20(x, z, s, sigma);
+                    xpos = 0;
+                }
+
+                final int n = Math.min(len, 64 - xpos);
+                src.get(block, 0, n);
+                if (!encrypt) auth.update(block, 0, n);
+                for (int i = 0; i < n; i++) block[i] ^= x[xpos+i];
+                if (encrypt) auth.update(block, 0, n);
+                dst.put(block, 0, n);
+
+                xpos += n;
+                len -= n;
+            }
+
+            auth.finish(tag, 0);
+        }
+
         /*
          * @description
          *   Length of key in bytes.
@@ -1,10 +1,14 @@
 package jsmith.nknsdk.client;
 
+import com.google.protobuf.ByteString;
+import jsmith.nknsdk.utils.Crypto;
 import jsmith.nknsdk.wallet.Wallet;
 import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  *
  */
@@ -16,6 +20,9 @@ public class Identity {
     public final String name;
     public final Wallet wallet;
 
+    private final String fullIdentifier;
+    private final ByteString fullIdentifierHash;
+
     /**
      * Creates new identity for sending and receiving messages. Identity needs access to a wallet
      * @param name Name is used with combination with wallet to identify client. Can be null.
@@ -25,11 +32,21 @@ public class Identity {
         if (w == null) throw new NullPointerException("Wallet cannot be null");
         this.name = name == null ? "" : name;
         this.wallet = w;
+
+        final String publicKeyHex = Hex.toHexString(w.getPublicKey());
+        this.fullIdentifier = this.name.isEmpty() ? publicKeyHex : this.name + "." + publicKeyHex;
+        this.fullIdentifierHash = ByteString.copyFrom(Crypto.sha256(fullIdentifier.getBytes(StandardCharsets.UTF_8)));
     }
 
     public String getFullIdentifier() {
-        if (name.isEmpty()) return Hex.toHexString(wallet.getPublicKey());
-        return name + "." + Hex.toHexString(wallet.getPublicKey());
+        return fullIdentifier;
+    }
+
+    /**
+     * @return sha256 of the full identifier, used as the source id in signature chains
+     */
+    public ByteString getFullIdentifierHash() {
+        return fullIdentifierHash;
     }
 
 }
@@ -0,0 +1,204 @@
+package jsmith.nknsdk.client;
+
+import jsmith.nknsdk.network.PeerDispatchLanes;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded buffer of received messages, which can be consumed either by pulling ({@link #poll(long, TimeUnit)}, {@link #drainTo(Collection, int)})
+ * or by a single reactive-streams {@link Subscriber}, which receives only as many messages as it has requested.
+ *
+ * When the buffer is full, new messages are handled according to the overflow policy. BLOCK holds back the inbound
+ * decrypt lane of the client, with all peers hashed onto it, for at most {@link PeerDispatchLanes#BLOCK_TIMEOUT_MS}
+ * until there is space, then the message is dropped.
+ */
+public class MessageStream implements Publisher<SimpleMessagesProtocol.ReceivedMessage> {
+
+    private final BlockingQueue<SimpleMessagesProtocol.ReceivedMessage> buffer;
+    private final PeerDispatchLanes.OverflowPolicy overflowPolicy;
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicReference<StreamSubscription> subscription = new AtomicReference<>();
+    private volatile boolean closed = false;
+
+    MessageStream(int capacity, PeerDispatchLanes.OverflowPolicy overflowPolicy) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive number");
+        if (overflowPolicy == null) throw new NullPointerException("Overflow policy cannot be null");
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Called by the client for every received non-ACK message, blocks only with the BLOCK overflow policy,
+     * for at most {@link PeerDispatchLanes#BLOCK_TIMEOUT_MS}
+     */
+    public void offer(SimpleMessagesProtocol.ReceivedMessage message) {
+        if (closed) return;
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    final long deadline = System.currentTimeMillis() + PeerDispatchLanes.BLOCK_TIMEOUT_MS;
+                    while (!buffer.offer(message, 100, TimeUnit.MILLISECONDS)) {
+                        if (closed) return;
+                        if (System.currentTimeMillis() >= deadline) {
+                            dropped.incrementAndGet();
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    dropped.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                break;
+            case DROP_NEWEST:
+                if (!buffer.offer(message)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!buffer.offer(message)) {
+                    if (buffer.poll() != null) dropped.incrementAndGet();
+                }
+                break;
+        }
+        drain();
+    }
+
+    /**
+     * Waits for next message
+     * @return received message or null, if the timeout elapsed first
+     */
+    public SimpleMessagesProtocol.ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (subscription.get() != null) throw new IllegalStateException("Stream has a subscriber, cannot poll");
+        return buffer.poll(timeout, unit);
+    }
+
+    /**
+     * Moves up to maxMessages already received messages to the collection, without waiting
+     * @return number of messages moved
+     */
+    public int drainTo(Collection<? super SimpleMessagesProtocol.ReceivedMessage> to, int maxMessages) {
+        if (subscription.get() != null) throw new IllegalStateException("Stream has a subscriber, cannot drain");
+        return buffer.drainTo(to, maxMessages);
+    }
+
+    /**
+     * @return number of buffered messages
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * @return number of messages dropped because of full buffer
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Only one subscriber can be active at a time, another one can subscribe after the previous has cancelled
+     */
+    @Override
+    public void subscribe(Subscriber<? super SimpleMessagesProtocol.ReceivedMessage> subscriber) {
+        if (subscriber == null) throw new NullPointerException("Subscriber cannot be null");
+
+        final StreamSubscription sub = new StreamSubscription(subscriber);
+        if (!subscription.compareAndSet(null, sub)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("Message stream already has a subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(sub);
+        sub.drain();
+    }
+
+    /**
+     * Stops accepting new messages. Subscriber is completed after it receives all buffered messages
+     */
+    void close() {
+        closed = true;
+        drain();
+    }
+
+    private void drain() {
+        final StreamSubscription sub = subscription.get();
+        if (sub != null) sub.drain();
+    }
+
+    private class StreamSubscription implements Subscription {
+
+        private final Subscriber<? super SimpleMessagesProtocol.ReceivedMessage> subscriber;
+        private final AtomicLong requested = new AtomicLong(0);
+        private final AtomicInteger wip = new AtomicInteger(0);
+        private volatile boolean cancelled = false;
+
+        StreamSubscription(Subscriber<? super SimpleMessagesProtocol.ReceivedMessage> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) return;
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested non-positive number of messages: " + n));
+                return;
+            }
+            requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscription.compareAndSet(this, null);
+        }
+
+        // Only one thread delivers at a time, others just mark that there is more work
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+
+            int missed = 1;
+            do {
+                final long r = requested.get();
+                long emitted = 0;
+                while (emitted != r && !cancelled) {
+                    final SimpleMessagesProtocol.ReceivedMessage message = buffer.poll();
+                    if (message == null) break;
+                    subscriber.onNext(message);
+                    emitted++;
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) requested.addAndGet(-emitted);
+
+                if (!cancelled && closed && buffer.isEmpty()) {
+                    cancel();
+                    subscriber.onComplete();
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package jsmith.nknsdk.client;
 
 import com.google.protobuf.ByteString;
 import jsmith.nknsdk.network.ClientTunnel;
+import jsmith.nknsdk.network.WsApi;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +35,7 @@ public class NKNClient {
     public void close() throws InterruptedException {
         sessionProtocol.close();
         clientTunnel.close();
+        simpleMessagesProtocol.close();
     }
 
     public SimpleMessagesProtocol simpleMessagesProtocol() {
@@ -65,6 +68,65 @@ public class NKNClient {
 
 
 
+    private int inboundParallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /**
+     * Sets number of threads decrypting and dispatching inbound messages. Messages from one source are always handled in order.
+     * Must be set before the client is started.
+     */
+    public NKNClient setInboundParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive number");
+        this.inboundParallelism = parallelism;
+        return this;
+    }
+    public int getInboundParallelism() {
+        return inboundParallelism;
+    }
+
+    private int inboundParseParallelism = 1;
+    /**
+     * Sets number of threads parsing inbound packets, before they are decrypted. Packets of one node connection are always parsed in order.
+     * Must be set before the client is started.
+     */
+    public NKNClient setInboundParseParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive number");
+        this.inboundParseParallelism = parallelism;
+        return this;
+    }
+    public int getInboundParseParallelism() {
+        return inboundParseParallelism;
+    }
+
+    private WebsocketTransport websocketTransport = WebsocketTransport.THREAD_PER_CONNECTION;
+    /**
+     * THREAD_PER_CONNECTION: Every websocket connection has own read and write thread
+     * SHARED_SELECTOR: All websocket connections of all clients using this option are multiplexed over one selector loop per core
+     * Must be set before the client is started.
+     */
+    public NKNClient setWebsocketTransport(WebsocketTransport transport) {
+        if (transport == null) throw new NullPointerException("Transport cannot be null");
+        this.websocketTransport = transport;
+        return this;
+    }
+    public WebsocketTransport getWebsocketTransport() {
+        return websocketTransport;
+    }
+
+    private PerMessageDeflateExtension websocketCompression = WsApi.defaultCompression();
+    /**
+     * permessage-deflate offered to the node when connecting. The node may decline it, then messages are sent uncompressed.
+     * By default only json messages are compressed. Null disables the compression.
+     * Must be set before the client is started.
+     */
+    public NKNClient setWebsocketCompression(PerMessageDeflateExtension compression) {
+        this.websocketCompression = compression;
+        return this;
+    }
+    public PerMessageDeflateExtension getWebsocketCompression() {
+        return websocketCompression;
+    }
+
+
+
     public ByteString getCurrentSigChainBlockHash() {
         return clientTunnel.currentSigChainBlockHash();
     }
@@ -80,6 +142,13 @@ public class NKNClient {
 
     }
 
+    public enum WebsocketTransport {
+
+        THREAD_PER_CONNECTION,
+        SHARED_SELECTOR
+
+    }
+
     public enum PeerEncryptionRequirement {
 
         ON_NON_ENCRYPTED_MESSAGE___ALLOW_NONE_DROP_ALL,
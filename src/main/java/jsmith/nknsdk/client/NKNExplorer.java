@@ -2,8 +2,7 @@ package jsmith.nknsdk.client;
 
 import jsmith.nknsdk.network.ConnectionProvider;
 import jsmith.nknsdk.network.HttpApi;
-import jsmith.nknsdk.utils.Base58;
-import jsmith.nknsdk.utils.Crypto;
+import jsmith.nknsdk.network.RpcCall;
 import jsmith.nknsdk.wallet.WalletUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -11,7 +10,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -20,33 +27,137 @@ public class NKNExplorer {
 
     private static final Logger LOG = LoggerFactory.getLogger(NKNExplorer.class);
 
+    /**
+     * Maximum number of queries sent to a node in one batch request
+     */
+    public static final int MAX_BATCH_SIZE = 200;
+
     private NKNExplorer() {} // Not instantiable
 
-    public static boolean isAddressValid(String address) {
-        try {
+    /**
+     * Maximum number of queries in flight when the node rejects batch requests and the calls are sent one by one
+     */
+    public static final int MAX_CONCURRENT_QUERIES = 16;
+
+    /**
+     * How long a node which rejected a batch request is sent the calls one by one, before batches are tried again
+     */
+    public static final long BATCH_REJECTION_TTL_MS = 10 * 60_000;
+
+    /**
+     * Nodes which rejected a batch request, with the time until which the calls to them are sent one by one right away
+     */
+    private static final ConcurrentHashMap<InetSocketAddress, Long> batchRejectedUntil = new ConcurrentHashMap<>();
+
+    private static boolean isBatchRejected(InetSocketAddress node) {
+        final Long until = batchRejectedUntil.get(node);
+        if (until == null) return false;
+        if (System.currentTimeMillis() < until) return true;
+        batchRejectedUntil.remove(node, until);
+        return false;
+    }
 
-            final byte[] addressBytes = Base58.decode(address);
-            if (addressBytes.length != WalletUtils.ADDRESS_PREFIX.length + 20 + 4) return false;
+    /**
+     * Sends the calls in batches of at most {@link #MAX_BATCH_SIZE}, all batches concurrently, and returns without waiting for them.
+     * If the node rejects batch requests, the calls are sent one by one, at most {@link #MAX_CONCURRENT_QUERIES} of them at a time.
+     * A batch which failed even after retries fails all of its futures.
+     */
+    private static List<CompletableFuture<Object>> batch(List<RpcCall> calls, String errorMessage) {
+        for (int start = 0; start < calls.size(); start += MAX_BATCH_SIZE) {
+            final List<RpcCall> chunk = calls.subList(start, Math.min(start + MAX_BATCH_SIZE, calls.size()));
+            ConnectionProvider.attemptAsync((node) -> {
+                // Nodes known to reject batches are not asked again, the calls fall back to the query queue right away
+                if (isBatchRejected(node)) return CompletableFuture.completedFuture(false);
+                return HttpApi.rpcBatchAsync(node, chunk).thenApply(answered -> {
+                    if (!answered && batchRejectedUntil.put(node, System.currentTimeMillis() + BATCH_REJECTION_TTL_MS) == null) {
+                        LOG.info("Node {} rejected batch request, sending calls one by one", node);
+                    }
+                    return answered;
+                });
+            }).whenComplete((answered, error) -> {
+                if (error != null) {
+                    final NKNExplorerException e = error instanceof NKNExplorerException ? (NKNExplorerException) error : new NKNExplorerException(errorMessage, error);
+                    for (RpcCall call : chunk) {
+                        call.result.completeExceptionally(e);
+                    }
+                } else if (!answered) {
+                    QueryQueue.submit(chunk, errorMessage);
+                }
+            });
+        }
 
-            for (int i = 0; i < WalletUtils.ADDRESS_PREFIX.length; i++) {
-                if (addressBytes[i] != WalletUtils.ADDRESS_PREFIX[i]) return false;
+        final ArrayList<CompletableFuture<Object>> results = new ArrayList<>(calls.size());
+        for (RpcCall call : calls) {
+            results.add(call.result);
+        }
+        return results;
+    }
+
+    /**
+     * Sends calls one by one, shared by all batches so that at most {@link #MAX_CONCURRENT_QUERIES} calls are in flight
+     */
+    private static final class QueryQueue {
+        private QueryQueue() {} // Not instantiable
+
+        private static final ConcurrentLinkedQueue<QueuedCall> queue = new ConcurrentLinkedQueue<>();
+        private static final AtomicInteger inFlight = new AtomicInteger();
+
+        static void submit(List<RpcCall> calls, String errorMessage) {
+            for (RpcCall call : calls) {
+                queue.add(new QueuedCall(call, errorMessage));
             }
+            pump();
+        }
 
-            final byte[] sh = new byte[addressBytes.length - 4];
-            System.arraycopy(addressBytes, 0, sh, 0, sh.length);
+        private static void pump() {
+            while (true) {
+                final int current = inFlight.get();
+                if (current >= MAX_CONCURRENT_QUERIES) return;
+                if (!inFlight.compareAndSet(current, current + 1)) continue;
+
+                final QueuedCall queued = queue.poll();
+                if (queued == null) {
+                    inFlight.decrementAndGet();
+                    // A call queued after the poll but before the decrement would be left behind otherwise
+                    if (queue.isEmpty()) return;
+                    continue;
+                }
 
-            final byte[] check = Crypto.doubleSha256(sh);
-            for (int i = 0; i < 4; i++) {
-                if (check[i] != addressBytes[sh.length + i]) return false;
+                final RpcCall call = queued.call;
+                ConnectionProvider.attemptAsync((node) -> HttpApi.rpcRequestAsync(node, call.method, call.params)).whenComplete((result, error) -> {
+                    if (error == null) {
+                        call.result.complete(result);
+                    } else {
+                        call.result.completeExceptionally(error instanceof NKNExplorerException ? error : new NKNExplorerException(queued.errorMessage, error));
+                    }
+                    inFlight.decrementAndGet();
+                    pump();
+                });
             }
+        }
 
-            return true;
+        private static final class QueuedCall {
+            final RpcCall call;
+            final String errorMessage;
 
-        } catch (IllegalArgumentException e) { // Not Base58 input
-            return false;
+            QueuedCall(RpcCall call, String errorMessage) {
+                this.call = call;
+                this.errorMessage = errorMessage;
+            }
         }
     }
 
+    public static boolean isAddressValid(String address) {
+        return WalletUtils.isAddressValid(address);
+    }
+
+    /**
+     * @see WalletUtils#validateAddresses(List)
+     */
+    public static BitSet validateAddresses(List<String> addresses) {
+        return WalletUtils.validateAddresses(addresses);
+    }
+
     public static class Wallet {
         private Wallet() {} // Not instantiable
 
@@ -74,22 +185,59 @@ public class NKNExplorer {
             }
         }
 
+        /**
+         * Queries balances of all addresses using batch requests, returns immediately
+         * @return futures of balances, in the order of the addresses
+         */
+        public static List<CompletableFuture<BigDecimal>> queryBalances(List<String> addresses) {
+            final ArrayList<RpcCall> calls = new ArrayList<>(addresses.size());
+            for (String address : addresses) {
+                calls.add(new RpcCall("getbalancebyaddr", new JSONObject().put("address", address)));
+            }
+
+            final ArrayList<CompletableFuture<BigDecimal>> balances = new ArrayList<>(addresses.size());
+            for (CompletableFuture<Object> result : batch(calls, "Failed to query balance")) {
+                balances.add(result.thenApply(r -> ((JSONObject) r).getBigDecimal("amount")));
+            }
+            return balances;
+        }
+
         public static long getNonce(String address) throws NKNExplorerException {
             try {
                 final HashMap<String, Object> params = new HashMap<>();
                 params.put("address", address);
                 final JSONObject response = (JSONObject) ConnectionProvider.attempt((node) -> HttpApi.rpcRequest(node, "getnoncebyaddr", params));
-
-                long nonce = response.getLong("nonce");
-                if (response.has("nonceInTxPool")) {
-                    nonce = Math.max(nonce, response.getLong("nonceInTxPool"));
-                }
-                return nonce;
+                return parseNonce(response);
             } catch (Exception t) {
                 if (t instanceof NKNExplorerException) throw (NKNExplorerException) t;
                 throw new NKNExplorerException("Failed to query nonce", t);
             }
         }
+
+        /**
+         * Queries nonces of all addresses using batch requests, returns immediately
+         * @return futures of nonces, in the order of the addresses
+         */
+        public static List<CompletableFuture<Long>> getNonces(List<String> addresses) {
+            final ArrayList<RpcCall> calls = new ArrayList<>(addresses.size());
+            for (String address : addresses) {
+                calls.add(new RpcCall("getnoncebyaddr", new JSONObject().put("address", address)));
+            }
+
+            final ArrayList<CompletableFuture<Long>> nonces = new ArrayList<>(addresses.size());
+            for (CompletableFuture<Object> result : batch(calls, "Failed to query nonce")) {
+                nonces.add(result.thenApply(r -> parseNonce((JSONObject) r)));
+            }
+            return nonces;
+        }
+
+        static long parseNonce(JSONObject response) {
+            long nonce = response.getLong("nonce");
+            if (response.has("nonceInTxPool")) {
+                nonce = Math.max(nonce, response.getLong("nonceInTxPool"));
+            }
+            return nonce;
+        }
     }
 
     public static class BlockChain {
@@ -145,41 +293,45 @@ public class NKNExplorer {
                 params.put("txPool", includeTxPool);
                 final JSONObject result = (JSONObject) ConnectionProvider.attempt((node) -> HttpApi.rpcRequest(node, "getsubscribers", params));
 
-                int i = 0;
-                Subscriber[] subscribers;
-                if (includeMeta) {
-                    int len = result.getJSONObject("subscribers").length() + (result.has("subscribersInTxPool") && includeTxPool ? result.getJSONObject("subscribersInTxPool").length() : 0);
-                    subscribers = new Subscriber[len];
-                    final JSONObject subscribersRes = result.getJSONObject("subscribers");
-                    for (String id : subscribersRes.keySet()) {
-                        subscribers[i++] = new Subscriber(id, subscribersRes.getString(id));
-                    }
-                    if (result.has("subscribersInTxPool") && includeTxPool) {
-                        final JSONObject subscribersInPoolRes = result.getJSONObject("subscribersInTxPool");
-                        for (String id : subscribersInPoolRes.keySet()) {
-                            subscribers[i++] = new Subscriber(id, subscribersInPoolRes.getString(id));
-                        }
+                return parseSubscribers(result, includeMeta, includeTxPool);
+            } catch (Exception t) {
+                if (t instanceof NKNExplorerException) throw (NKNExplorerException) t;
+                throw new NKNExplorerException("Failed to query subscribers", t);
+            }
+        }
+
+        static Subscriber[] parseSubscribers(JSONObject result, boolean includeMeta, boolean includeTxPool) {
+            int i = 0;
+            Subscriber[] subscribers;
+            if (includeMeta) {
+                int len = result.getJSONObject("subscribers").length() + (result.has("subscribersInTxPool") && includeTxPool ? result.getJSONObject("subscribersInTxPool").length() : 0);
+                subscribers = new Subscriber[len];
+                final JSONObject subscribersRes = result.getJSONObject("subscribers");
+                for (String id : subscribersRes.keySet()) {
+                    subscribers[i++] = new Subscriber(id, subscribersRes.getString(id));
+                }
+                if (result.has("subscribersInTxPool") && includeTxPool) {
+                    final JSONObject subscribersInPoolRes = result.getJSONObject("subscribersInTxPool");
+                    for (String id : subscribersInPoolRes.keySet()) {
+                        subscribers[i++] = new Subscriber(id, subscribersInPoolRes.getString(id));
                     }
-                } else {
-                    int len = result.getJSONArray("subscribers").length() + (result.has("subscribersInTxPool") && includeTxPool ? result.getJSONArray("subscribersInTxPool").length() : 0);
-                    subscribers = new Subscriber[len];
-                    final JSONArray subscribersRes = result.getJSONArray("subscribers");
-                    for (Object id : subscribersRes) {
+                }
+            } else {
+                int len = result.getJSONArray("subscribers").length() + (result.has("subscribersInTxPool") && includeTxPool ? result.getJSONArray("subscribersInTxPool").length() : 0);
+                subscribers = new Subscriber[len];
+                final JSONArray subscribersRes = result.getJSONArray("subscribers");
+                for (Object id : subscribersRes) {
+                    subscribers[i++] = new Subscriber(id.toString(), null);
+                }
+                if (result.has("subscribersInTxPool") && includeTxPool) {
+                    final JSONArray subscribersInPoolRes = result.getJSONArray("subscribersInTxPool");
+                    for (Object id : subscribersInPoolRes) {
                         subscribers[i++] = new Subscriber(id.toString(), null);
                     }
-                    if (result.has("subscribersInTxPool") && includeTxPool) {
-                        final JSONArray subscribersInPoolRes = result.getJSONArray("subscribersInTxPool");
-                        for (Object id : subscribersInPoolRes) {
-                            subscribers[i++] = new Subscriber(id.toString(), null);
-                        }
-                    }
                 }
-
-                return subscribers;
-            } catch (Exception t) {
-                if (t instanceof NKNExplorerException) throw (NKNExplorerException) t;
-                throw new NKNExplorerException("Failed to query subscribers", t);
             }
+
+            return subscribers;
         }
 
         public static int getSubscriberCount(String topic) throws NKNExplorerException {
@@ -199,14 +351,37 @@ public class NKNExplorer {
                 params.put("topic", topic);
                 params.put("subscriber", fullSubscriberIdentifier);
                 final JSONObject result = (JSONObject) ConnectionProvider.attempt((node) -> HttpApi.rpcRequest(node, "getsubscription", params));
-                if (result.getInt("expiresAt") == 0) return null;
-                return new SubscriptionDetail(fullSubscriberIdentifier, topic, result.getString("meta"), result.getInt("expiresAt"));
+                return parseSubscriptionDetail(topic, fullSubscriberIdentifier, result);
             } catch (Exception t) {
                 if (t instanceof NKNExplorerException) throw (NKNExplorerException) t;
                 throw new NKNExplorerException("Failed to query subscription detail", t);
             }
         }
 
+        /**
+         * Queries subscription details of all subscribers using batch requests, returns immediately
+         * @return futures of subscription details (null when not subscribed), in the order of the subscribers
+         */
+        public static List<CompletableFuture<SubscriptionDetail>> getSubscriptionDetails(String topic, List<String> fullSubscriberIdentifiers) {
+            final ArrayList<RpcCall> calls = new ArrayList<>(fullSubscriberIdentifiers.size());
+            for (String subscriber : fullSubscriberIdentifiers) {
+                calls.add(new RpcCall("getsubscription", new JSONObject().put("topic", topic).put("subscriber", subscriber)));
+            }
+
+            final List<CompletableFuture<Object>> results = batch(calls, "Failed to query subscription detail");
+            final ArrayList<CompletableFuture<SubscriptionDetail>> details = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                final String subscriber = fullSubscriberIdentifiers.get(i);
+                details.add(results.get(i).thenApply(r -> parseSubscriptionDetail(topic, subscriber, (JSONObject) r)));
+            }
+            return details;
+        }
+
+        static SubscriptionDetail parseSubscriptionDetail(String topic, String fullSubscriberIdentifier, JSONObject result) {
+            if (result.getInt("expiresAt") == 0) return null;
+            return new SubscriptionDetail(fullSubscriberIdentifier, topic, result.getString("meta"), result.getInt("expiresAt"));
+        }
+
 
         public static final class SubscriptionDetail {
             public final String fullClientIdentifier;
@@ -0,0 +1,196 @@
+package jsmith.nknsdk.client;
+
+import jsmith.nknsdk.network.ConnectionProvider;
+import jsmith.nknsdk.network.HttpApi;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking variant of {@link NKNExplorer}. Every query returns a future immediately, which fails with
+ * {@link NKNExplorerException} if the query didn't succeed even after retries.
+ *
+ * Futures are completed on the RPC client thread, dependent stages which block should use the *Async methods of {@link CompletableFuture}.
+ */
+public class NKNExplorerAsync {
+
+    private NKNExplorerAsync() {} // Not instantiable
+
+    private static <T> CompletableFuture<T> query(String method, Map<String, Object> params, Function<Object, T> parser, String errorMessage) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        ConnectionProvider.attemptAsync((node) -> HttpApi.rpcRequestAsync(node, method, params)).whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof NKNExplorerException ? error : new NKNExplorerException(errorMessage, error));
+                return;
+            }
+            try {
+                result.complete(parser.apply(value));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(new NKNExplorerException(errorMessage, e));
+            }
+        });
+        return result;
+    }
+
+    public static class Wallet {
+        private Wallet() {} // Not instantiable
+
+        public static CompletableFuture<String> resolveNamedAddress(String name) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("name", name);
+            return query("getaddressbyname", params, (result) -> (String) result, "Failed to resolve named address");
+        }
+
+        public static CompletableFuture<BigDecimal> queryBalance(String address) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("address", address);
+            return query("getbalancebyaddr", params, (result) -> ((JSONObject) result).getBigDecimal("amount"), "Failed to query balance");
+        }
+
+        public static CompletableFuture<Long> getNonce(String address) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("address", address);
+            return query("getnoncebyaddr", params, (result) -> NKNExplorer.Wallet.parseNonce((JSONObject) result), "Failed to query nonce");
+        }
+    }
+
+    public static class BlockChain {
+        private BlockChain() {}
+
+        public static CompletableFuture<Integer> getBlockCount() {
+            return query("getblockcount", new HashMap<>(), (result) -> (Integer) result, "Failed to query block count");
+        }
+
+        public static CompletableFuture<NKNExplorer.BlockChain.LatestBlockHash> getLatestBlockHash() {
+            return query("getlatestblockhash", new HashMap<>(), (result) -> {
+                final JSONObject hash = (JSONObject) result;
+                return new NKNExplorer.BlockChain.LatestBlockHash(hash.getString("hash"), hash.getInt("height"));
+            }, "Failed to query block hash");
+        }
+    }
+
+    public static class Subscription {
+        private Subscription() {}
+
+        public static CompletableFuture<NKNExplorer.Subscription.Subscriber[]> getSubscribers(String topic) {
+            return getSubscribers(topic, 0, NKNExplorer.Subscription.MAX_LIMIT, true, true);
+        }
+
+        public static CompletableFuture<NKNExplorer.Subscription.Subscriber[]> getSubscribers(String topic, int offset, int limit, boolean includeMeta, boolean includeTxPool) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("topic", topic);
+            params.put("offset", offset);
+            params.put("limit", limit);
+            params.put("meta", includeMeta);
+            params.put("txPool", includeTxPool);
+            return query("getsubscribers", params, (result) -> NKNExplorer.Subscription.parseSubscribers((JSONObject) result, includeMeta, includeTxPool), "Failed to query subscribers");
+        }
+
+        /**
+         * Queries all subscribers of the topic, not only the first {@link NKNExplorer.Subscription#MAX_LIMIT}.
+         * The subscriber count is queried first, then all pages are queried concurrently and passed to the consumer as they arrive.
+         * The consumer is called by one thread at a time and must not block.
+         *
+         * @param includeTxPool whether to include subscribers in the transaction pool, these are added to the first page
+         * @return future of the number of received subscribers, completed after the last page was consumed
+         */
+        public static CompletableFuture<Integer> getAllSubscribers(String topic, boolean includeMeta, boolean includeTxPool, Consumer<NKNExplorer.Subscription.Subscriber[]> pageConsumer) {
+            final CompletableFuture<Integer> result = new CompletableFuture<>();
+            getSubscriberCount(topic).whenComplete((count, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                new SubscriberPages(topic, includeMeta, includeTxPool, pageConsumer, result).start(count);
+            });
+            return result;
+        }
+
+        private static final class SubscriberPages {
+
+            private final String topic;
+            private final boolean includeMeta;
+            private final boolean includeTxPool;
+            private final Consumer<NKNExplorer.Subscription.Subscriber[]> pageConsumer;
+            private final CompletableFuture<Integer> result;
+
+            private int pending = 0;
+            private int lastOffset;
+            private int received = 0;
+
+            SubscriberPages(String topic, boolean includeMeta, boolean includeTxPool, Consumer<NKNExplorer.Subscription.Subscriber[]> pageConsumer, CompletableFuture<Integer> result) {
+                this.topic = topic;
+                this.includeMeta = includeMeta;
+                this.includeTxPool = includeTxPool;
+                this.pageConsumer = pageConsumer;
+                this.result = result;
+            }
+
+            void start(int count) {
+                final int pages = Math.max(1, (count + NKNExplorer.Subscription.MAX_LIMIT - 1) / NKNExplorer.Subscription.MAX_LIMIT);
+                synchronized (this) {
+                    pending = pages;
+                    lastOffset = (pages - 1) * NKNExplorer.Subscription.MAX_LIMIT;
+                }
+                for (int i = 0; i < pages; i++) {
+                    fetch(i * NKNExplorer.Subscription.MAX_LIMIT);
+                }
+            }
+
+            private void fetch(int offset) {
+                getSubscribers(topic, offset, NKNExplorer.Subscription.MAX_LIMIT, includeMeta, includeTxPool && offset == 0)
+                        .whenComplete((subscribers, error) -> received(offset, subscribers, error));
+            }
+
+            private void received(int offset, NKNExplorer.Subscription.Subscriber[] subscribers, Throwable error) {
+                int nextOffset = -1;
+                synchronized (this) {
+                    if (result.isDone()) return;
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+
+                    try {
+                        pageConsumer.accept(subscribers);
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(new NKNExplorerException("Subscriber page consumer failed", e));
+                        return;
+                    }
+                    received += subscribers.length;
+
+                    // Topic got new subscribers since they were counted
+                    if (offset == lastOffset && subscribers.length >= NKNExplorer.Subscription.MAX_LIMIT) {
+                        lastOffset += NKNExplorer.Subscription.MAX_LIMIT;
+                        nextOffset = lastOffset;
+                    } else if (--pending == 0) {
+                        result.complete(received);
+                    }
+                }
+                if (nextOffset >= 0) fetch(nextOffset);
+            }
+        }
+
+        public static CompletableFuture<Integer> getSubscriberCount(String topic) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("topic", topic);
+            return query("getsubscriberscount", params, (result) -> (Integer) result, "Failed to query subscriber count");
+        }
+
+        /**
+         * @return future of subscription detail, completed with null if the subscriber is not subscribed
+         */
+        public static CompletableFuture<NKNExplorer.Subscription.SubscriptionDetail> getSubscriptionDetail(String topic, String fullSubscriberIdentifier) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("topic", topic);
+            params.put("subscriber", fullSubscriberIdentifier);
+            return query("getsubscription", params, (result) -> NKNExplorer.Subscription.parseSubscriptionDetail(topic, fullSubscriberIdentifier, (JSONObject) result), "Failed to query subscription detail");
+        }
+    }
+
+}
@@ -1,8 +1,11 @@
 package jsmith.nknsdk.client;
 
+import jsmith.nknsdk.network.PayloadCodec;
+import jsmith.nknsdk.network.PayloadCodecs;
 import jsmith.nknsdk.network.session.Session;
 import jsmith.nknsdk.network.session.SessionHandler;
 
+import java.util.Arrays;
 import java.util.function.Function;
 
 /**
@@ -38,6 +41,14 @@ public class SessionProtocol {
         handler.setIncomingPreferredWinSize(preferredWinSize);
     }
 
+    /**
+     * Offers compression of the data of dialed sessions with given codecs, in order of preference, e.g. {@link PayloadCodecs#DEFLATE}.
+     * The data are compressed only if the other side supports one of the codecs. Incoming sessions are compressed when the dialing side asks for it.
+     */
+    public void setCompressionCodecs(PayloadCodec... codecs) {
+        handler.setCompressionCodecs(Arrays.asList(codecs));
+    }
+
 
     void close() throws InterruptedException {
         handler.close();
@@ -1,16 +1,23 @@
 package jsmith.nknsdk.client;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import jsmith.nknsdk.network.ClientMessageWorker;
+import jsmith.nknsdk.network.PayloadCodec;
+import jsmith.nknsdk.network.PayloadCodecs;
+import jsmith.nknsdk.network.PeerDispatchLanes;
 import jsmith.nknsdk.network.proto.MessagesP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -45,6 +52,110 @@ public class SimpleMessagesProtocol {
         return onMessageL;
     }
 
+    public static final int DEFAULT_DISPATCH_LANES = 8;
+    public static final int DEFAULT_DISPATCH_MAILBOX_SIZE = 1024;
+
+    private volatile DispatchMode dispatchMode = DispatchMode.UNORDERED;
+    private volatile PeerDispatchLanes dispatchLanes = null;
+
+    /**
+     * UNORDERED: Listener is called from a shared pool, messages of one sender may be handled concurrently and out of order
+     * ORDERED_PER_PEER: Each sender is assigned a lane, messages of one sender are handled one at a time, in order of arrival
+     */
+    public SimpleMessagesProtocol setDispatchMode(DispatchMode mode) {
+        return setDispatchMode(mode, DEFAULT_DISPATCH_LANES, DEFAULT_DISPATCH_MAILBOX_SIZE, PeerDispatchLanes.OverflowPolicy.BLOCK);
+    }
+
+    public SimpleMessagesProtocol setDispatchMode(DispatchMode mode, int lanes, int mailboxSize, PeerDispatchLanes.OverflowPolicy overflowPolicy) {
+        synchronized (this) {
+            if (dispatchLanes != null) dispatchLanes.close();
+            dispatchLanes = mode == DispatchMode.ORDERED_PER_PEER ? new PeerDispatchLanes(lanes, mailboxSize, overflowPolicy) : null;
+            dispatchMode = mode;
+        }
+        return this;
+    }
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+    public PeerDispatchLanes getDispatchLanes() {
+        return dispatchLanes;
+    }
+
+    /**
+     * @return number of messages waiting in each dispatch lane, empty if the dispatch mode is not ORDERED_PER_PEER
+     */
+    public int[] getDispatchLaneDepths() {
+        final PeerDispatchLanes lanes = dispatchLanes;
+        return lanes == null ? new int[0] : lanes.getLaneDepths();
+    }
+
+    private volatile SubscriberCache subscriberCache = SubscriberCache.shared();
+
+    /**
+     * Cache of topic subscribers used by publish, null to query the subscribers for every published message
+     */
+    public SimpleMessagesProtocol setSubscriberCache(SubscriberCache subscriberCache) {
+        this.subscriberCache = subscriberCache;
+        return this;
+    }
+    public SubscriberCache getSubscriberCache() {
+        return subscriberCache;
+    }
+
+    public static final int DEFAULT_MESSAGE_STREAM_CAPACITY = 1024;
+
+    private volatile MessageStream messageStream = null;
+
+    /**
+     * Opens a stream of received messages, which can be polled or subscribed to, in addition to the message listener.
+     * Previously opened stream is closed. Oldest messages are dropped when the stream is full, so a stream which
+     * is not consumed never holds back the inbound processing
+     */
+    public MessageStream openMessageStream() {
+        return openMessageStream(DEFAULT_MESSAGE_STREAM_CAPACITY, PeerDispatchLanes.OverflowPolicy.DROP_OLDEST);
+    }
+
+    public MessageStream openMessageStream(int capacity, PeerDispatchLanes.OverflowPolicy overflowPolicy) {
+        final MessageStream stream = new MessageStream(capacity, overflowPolicy);
+        synchronized (this) {
+            if (messageStream != null) messageStream.close();
+            messageStream = stream;
+        }
+        return stream;
+    }
+    public MessageStream getMessageStream() {
+        return messageStream;
+    }
+
+    public void closeMessageStream() {
+        synchronized (this) {
+            if (messageStream != null) messageStream.close();
+            messageStream = null;
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            if (dispatchLanes != null) dispatchLanes.close();
+        }
+        closeMessageStream();
+    }
+
+    private volatile PayloadCodec payloadCompression = null;
+    /**
+     * Compresses text and binary messages before encryption, e.g. with {@link PayloadCodecs#DEFLATE}. The codec is registered in {@link PayloadCodecs}.
+     * Receivers have to know the codec too, clients without the compression support would receive the compressed bytes.
+     * Null disables the compression.
+     */
+    public SimpleMessagesProtocol setPayloadCompression(PayloadCodec codec) {
+        if (codec != null) PayloadCodecs.register(codec);
+        this.payloadCompression = codec;
+        return this;
+    }
+    public PayloadCodec getPayloadCompression() {
+        return payloadCompression;
+    }
+
     private boolean noAutomaticACKs = false;
     public SimpleMessagesProtocol setNoAutomaticACKs(boolean noAutomaticACKs) {
         this.noAutomaticACKs  = noAutomaticACKs;
@@ -167,18 +278,61 @@ public class SimpleMessagesProtocol {
         return publishAsync(topic, includeTxPool, message, MessagesP.PayloadType.BINARY);
     }
 
-    private List<CompletableFuture<ReceivedMessage>> publishAsync(String topic, boolean includeTxPool, ByteString data, MessagesP.PayloadType type) throws NKNExplorerException {
-        final NKNExplorer.Subscription.Subscriber[] subscribers = NKNExplorer.Subscription.getSubscribers(topic, 0, NKNExplorer.Subscription.MAX_LIMIT, false, includeTxPool);
-        if (subscribers.length == 0) return new ArrayList<>();
+    private static final List<String> LAST_PAGE = new ArrayList<>();
 
-        final ArrayList<String> dest = new ArrayList<>(subscribers.length);
-        for (NKNExplorer.Subscription.Subscriber sub : subscribers) dest.add(sub.fullClientIdentifier);
+    /**
+     * Sends the message to pages of subscribers as they arrive, returns after all pages were sent
+     */
+    private List<CompletableFuture<ReceivedMessage>> publishAsync(String topic, boolean includeTxPool, ByteString data, MessagesP.PayloadType type) throws NKNExplorerException {
+        final LinkedBlockingQueue<List<String>> pages = new LinkedBlockingQueue<>();
+        final SubscriberCache cache = subscriberCache;
+        final CompletableFuture<?> queried;
+        if (cache != null) {
+            queried = cache.forEachSubscriberPage(topic, includeTxPool, pages::add);
+        } else {
+            queried = NKNExplorerAsync.Subscription.getAllSubscribers(topic, false, includeTxPool, (subscribers) -> {
+                final ArrayList<String> page = new ArrayList<>(subscribers.length);
+                for (NKNExplorer.Subscription.Subscriber sub : subscribers) page.add(sub.fullClientIdentifier);
+                pages.add(page);
+            });
+        }
+        queried.whenComplete((result, error) -> pages.add(LAST_PAGE));
 
         LOG.debug("Publishing message");
-        return cmWorker.sendMessageAsync(dest, null, type, data);
+        final ArrayList<CompletableFuture<ReceivedMessage>> sent = new ArrayList<>();
+        try {
+            List<String> page;
+            while ((page = pages.take()) != LAST_PAGE) {
+                if (!page.isEmpty()) sent.addAll(cmWorker.sendMessageAsync(page, null, type, data));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while publishing, message was sent to {} subscribers", sent.size());
+            return sent;
+        }
+
+        if (queried.isCompletedExceptionally()) {
+            final NKNExplorerException error;
+            try {
+                queried.join();
+                throw new AssertionError();
+            } catch (CompletionException e) {
+                error = e.getCause() instanceof NKNExplorerException ? (NKNExplorerException) e.getCause() : new NKNExplorerException("Failed to query subscribers", e.getCause());
+            }
+            if (sent.isEmpty()) throw error;
+            LOG.warn("Failed to query all subscribers, message was sent to {} subscribers", sent.size(), error);
+        }
+        return sent;
     }
 
 
+    public enum DispatchMode {
+
+        UNORDERED,
+        ORDERED_PER_PEER
+
+    }
+
     public static class ReceivedMessage {
 
         public final ByteString msgId;
@@ -186,45 +340,59 @@ public class SimpleMessagesProtocol {
         public final boolean wasEncrypted;
 
         public final ByteString binaryData;
-        public final String textData;
         public final boolean isBinary;
         public final boolean isText;
         public final boolean isAck;
 
-        public ReceivedMessage(String from, ByteString msgId, boolean wasEncrypted, MessagesP.PayloadType type, Object data) {
+        private final ByteString rawData;
+        private volatile String textData = null;
+
+        /**
+         * @param data payload data as received, TEXT payload is decoded only when requested
+         */
+        public ReceivedMessage(String from, ByteString msgId, boolean wasEncrypted, MessagesP.PayloadType type, ByteString data) {
             this.from = from.lastIndexOf('.') == 0 ? from.substring(1) : from;
             this.msgId = msgId;
             this.wasEncrypted = wasEncrypted;
+            this.rawData = data == null ? ByteString.EMPTY : data;
 
-            if (type == MessagesP.PayloadType.TEXT) {
-                isText = true;
-                textData = (String) data;
-
-                isAck = false;
-                isBinary = false;
-                binaryData = null;
-            } else if (type == MessagesP.PayloadType.BINARY) {
-                isBinary = true;
-                binaryData = (ByteString) data;
-
-                isAck = false;
-                isText = false;
-                textData = null;
-            } else if (type == MessagesP.PayloadType.ACK) {
-                isAck = true;
-
-                isText = false;
-                textData = null;
-                isBinary = false;
-                binaryData = null;
-            } else {
-                isAck = false;
-                isText = false;
-                textData = null;
-                isBinary = false;
-                binaryData = null;
+            isText = type == MessagesP.PayloadType.TEXT;
+            isBinary = type == MessagesP.PayloadType.BINARY;
+            isAck = type == MessagesP.PayloadType.ACK;
+
+            binaryData = isBinary ? rawData : null;
+        }
+
+        /**
+         * @return decoded text, or null if this is not a TEXT message or the content isn't valid text
+         */
+        public String getTextData() {
+            if (!isText) return null;
+            String text = textData;
+            if (text == null) {
+                try {
+                    text = MessagesP.TextData.parseFrom(rawData).getText();
+                } catch (InvalidProtocolBufferException e) {
+                    LOG.warn("Received message of TEXT type, but the content isn't valid text");
+                    return null;
+                }
+                textData = text;
             }
+            return text;
+        }
+
+        /**
+         * @return payload data exactly as received, for TEXT messages this is the encoded TextData
+         */
+        public ByteString getRawData() {
+            return rawData;
+        }
 
+        /**
+         * @return read-only view of {@link #getRawData()}, without copying
+         */
+        public ByteBuffer getRawDataBuffer() {
+            return rawData.asReadOnlyByteBuffer();
         }
 
     }
@@ -0,0 +1,218 @@
+package jsmith.nknsdk.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cache of topic subscribers used for publishing, so that frequent publishers don't query the subscribers for every message.
+ *
+ * Subscribers older than refresh-ahead time are still used, but refreshed in background,
+ * subscribers older than TTL are queried again before use.
+ * Concurrent queries of the same topic are merged into one.
+ */
+public class SubscriberCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriberCache.class);
+
+    public static final long DEFAULT_TTL_MS = 30_000;
+    public static final long DEFAULT_REFRESH_AHEAD_MS = 20_000;
+
+    private static final SubscriberCache shared = new SubscriberCache();
+
+    /**
+     * @return cache used by all clients by default
+     */
+    public static SubscriberCache shared() {
+        return shared;
+    }
+
+    private volatile long ttlMS = DEFAULT_TTL_MS;
+    private volatile long refreshAheadMS = DEFAULT_REFRESH_AHEAD_MS;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * How long are subscribers of a topic used, 0 disables caching
+     */
+    public SubscriberCache setTtlMS(long ttlMS) {
+        if (ttlMS < 0) throw new IllegalArgumentException("TTL must be non-negative number");
+        this.ttlMS = ttlMS;
+        return this;
+    }
+    public long getTtlMS() {
+        return ttlMS;
+    }
+
+    /**
+     * Age of cached subscribers after which they are refreshed in background, should be smaller than TTL
+     */
+    public SubscriberCache setRefreshAheadMS(long refreshAheadMS) {
+        if (refreshAheadMS < 0) throw new IllegalArgumentException("Refresh ahead time must be non-negative number");
+        this.refreshAheadMS = refreshAheadMS;
+        return this;
+    }
+    public long getRefreshAheadMS() {
+        return refreshAheadMS;
+    }
+
+    /**
+     * Blocking variant of {@link #getSubscribersAsync(String, boolean)}
+     */
+    public List<String> getSubscribers(String topic, boolean includeTxPool) throws NKNExplorerException {
+        try {
+            return getSubscribersAsync(topic, includeTxPool).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NKNExplorerException("Interrupted while querying subscribers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NKNExplorerException) throw (NKNExplorerException) e.getCause();
+            throw new NKNExplorerException("Failed to query subscribers", e.getCause());
+        }
+    }
+
+    /**
+     * @return future of unmodifiable list of full identifiers of the topic subscribers
+     */
+    public CompletableFuture<List<String>> getSubscribersAsync(String topic, boolean includeTxPool) {
+        final String key = key(topic, includeTxPool);
+        final List<String> cached = cached(key, topic, includeTxPool);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return load(key, topic, includeTxPool).result;
+    }
+
+    /**
+     * Passes the subscribers to the consumer in pages as they arrive, or all at once when they are cached.
+     * The consumer is called by one thread at a time and must not block.
+     *
+     * @return future completed after the last page was consumed
+     */
+    public CompletableFuture<Void> forEachSubscriberPage(String topic, boolean includeTxPool, Consumer<List<String>> pageConsumer) {
+        final String key = key(topic, includeTxPool);
+        final List<String> cached = cached(key, topic, includeTxPool);
+        if (cached != null) {
+            pageConsumer.accept(cached);
+            return CompletableFuture.completedFuture(null);
+        }
+        final Load load = load(key, topic, includeTxPool);
+        load.addConsumer(pageConsumer);
+        return load.result.thenApply(subscribers -> null);
+    }
+
+    private List<String> cached(String key, String topic, boolean includeTxPool) {
+        final Entry entry = entries.get(key);
+        if (entry == null) return null;
+
+        final long age = System.currentTimeMillis() - entry.fetchedAt;
+        if (age >= ttlMS) {
+            entries.remove(key, entry);
+            return null;
+        }
+        if (age >= refreshAheadMS) {
+            load(key, topic, includeTxPool).result.whenComplete((subscribers, error) -> {
+                if (error != null) LOG.debug("Refresh of subscribers of topic {} failed", topic, error);
+            });
+        }
+        return entry.subscribers;
+    }
+
+    /**
+     * Cached subscribers of the topic will be queried again on next use
+     */
+    public void invalidate(String topic) {
+        generation.incrementAndGet();
+        entries.remove(key(topic, false));
+        entries.remove(key(topic, true));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private Load load(String key, String topic, boolean includeTxPool) {
+        final Load load = new Load();
+        final Load inProgress = loading.putIfAbsent(key, load);
+        if (inProgress != null) return inProgress;
+
+        final long loadGeneration = generation.get();
+        NKNExplorerAsync.Subscription.getAllSubscribers(topic, false, includeTxPool, (subscribers) -> {
+            final ArrayList<String> identifiers = new ArrayList<>(subscribers.length);
+            for (NKNExplorer.Subscription.Subscriber subscriber : subscribers) identifiers.add(subscriber.fullClientIdentifier);
+            load.page(Collections.unmodifiableList(identifiers));
+        }).whenComplete((count, error) -> {
+            loading.remove(key, load);
+            if (error != null) {
+                load.result.completeExceptionally(error);
+                return;
+            }
+
+            final List<String> list = load.all();
+            // Subscribers queried before invalidation may be already outdated
+            if (ttlMS > 0 && generation.get() == loadGeneration) {
+                entries.put(key, new Entry(list, System.currentTimeMillis()));
+            }
+            load.result.complete(list);
+        });
+        return load;
+    }
+
+    private static String key(String topic, boolean includeTxPool) {
+        return (includeTxPool ? "+" : "-") + topic;
+    }
+
+    /**
+     * Query of subscribers in progress, consumers which join late get the pages received so far first
+     */
+    private static final class Load {
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        private final ArrayList<List<String>> pages = new ArrayList<>();
+        private final ArrayList<Consumer<List<String>>> consumers = new ArrayList<>();
+
+        synchronized void addConsumer(Consumer<List<String>> consumer) {
+            for (List<String> page : pages) consumer.accept(page);
+            consumers.add(consumer);
+        }
+
+        synchronized void page(List<String> page) {
+            pages.add(page);
+            for (Consumer<List<String>> consumer : consumers) {
+                try {
+                    consumer.accept(page);
+                } catch (RuntimeException e) {
+                    LOG.error("Subscriber page consumer failed", e);
+                }
+            }
+        }
+
+        synchronized List<String> all() {
+            if (pages.size() == 1) return pages.get(0);
+            int size = 0;
+            for (List<String> page : pages) size += page.size();
+            final ArrayList<String> all = new ArrayList<>(size);
+            for (List<String> page : pages) all.addAll(page);
+            return Collections.unmodifiableList(all);
+        }
+    }
+
+    private static final class Entry {
+        final List<String> subscribers;
+        final long fetchedAt;
+
+        Entry(List<String> subscribers, long fetchedAt) {
+            this.subscribers = subscribers;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+}
@@ -0,0 +1,606 @@
+package jsmith.nknsdk.network;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking counterpart of {@link HttpRpcClient}: all connections are served by one selector thread,
+ * so any number of calls can be in flight without a thread waiting for each of them.
+ * Connections are kept alive and pooled per node like in {@link HttpRpcClient}, calls over the limit wait in a queue.
+ *
+ * Futures are completed on the selector thread, so their dependent stages must not block.
+ * If the selector fails, all pending calls fail and the client stops, see {@link #isRunning()}.
+ */
+class AsyncHttpRpcClient implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncHttpRpcClient.class);
+
+    private static final int MAX_HEADERS_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final ScheduledExecutorService timer;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    // Calls not finished yet, so that they can be failed when the selector fails
+    private final Set<Exchange> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private final ScheduledFuture<?> idleCheck;
+
+    // Accessed only from the selector thread
+    private final HashMap<InetSocketAddress, NodePool> pools = new HashMap<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    AsyncHttpRpcClient(ScheduledExecutorService timer) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new RpcException("Could not open selector", e);
+        }
+        this.timer = timer;
+        this.idleCheck = timer.scheduleWithFixedDelay(() -> execute(this::closeIdle),
+                HttpRpcClient.IDLE_TIMEOUT_MS / 2, HttpRpcClient.IDLE_TIMEOUT_MS / 2, TimeUnit.MILLISECONDS);
+        this.thread = new Thread(this, "AsyncRpcClient");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @param request single call or a batch
+     * @return future of parsed {@link JSONObject} or {@link JSONArray} response, failed with {@link RpcException}
+     */
+    CompletableFuture<Object> call(InetSocketAddress to, Object request) {
+        final int timeout = ConnectionProvider.rpcCallTimeoutMS();
+        final Exchange exchange = new Exchange(to, encodeRequest(to, HttpRpcClient.serialize(request)));
+
+        pending.add(exchange);
+        if (!running) {
+            exchange.finish(null, new RpcException("RPC client is stopped"));
+            return exchange.future;
+        }
+        execute(() -> pools.computeIfAbsent(to, NodePool::new).submit(exchange));
+        if (timeout > 0) {
+            exchange.timeoutTask = timer.schedule(() -> execute(() -> timeout(exchange)), timeout, TimeUnit.MILLISECONDS);
+        }
+        return exchange.future;
+    }
+
+    private static ByteBuffer encodeRequest(InetSocketAddress to, byte[] body) {
+        final byte[] head = ("POST / HTTP/1.1\r\n" +
+                "Host: " + HttpRpcClient.hostHeader(to) + "\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Accept: application/json\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: keep-alive\r\n" +
+                "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        final ByteBuffer request = ByteBuffer.allocate(head.length + body.length);
+        request.put(head).put(body).flip();
+        return request;
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * @return false if the client has stopped because its selector failed, calls then fail immediately
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                // Tasks queued by the selector thread itself don't wake the selector up
+                if (tasks.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+            } catch (IOException e) {
+                LOG.error("RPC selector failed", e);
+                stop(e);
+                return;
+            }
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("RPC selector task failed", e);
+                }
+            }
+
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                final Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        connection.onConnectable();
+                    } else {
+                        if (key.isReadable()) connection.onReadable();
+                        if (key.isValid() && key.isWritable()) connection.onWritable();
+                    }
+                } catch (CancelledKeyException e) {
+                    // the connection has been closed meanwhile
+                } catch (IOException e) {
+                    connection.pool.failed(connection, e);
+                } catch (RuntimeException e) {
+                    LOG.error("RPC connection failed", e);
+                    connection.pool.failed(connection, new IOException(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails all pending calls and closes all connections, called by the selector thread when it ends
+     */
+    private void stop(IOException cause) {
+        running = false;
+        idleCheck.cancel(false);
+        for (Exchange exchange : pending) {
+            exchange.finish(null, new RpcException("RPC client stopped", cause));
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((Connection) key.attachment()).close();
+        }
+        pools.clear();
+        tasks.clear();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.trace("Exception during selector close", e);
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than {@link HttpRpcClient#IDLE_TIMEOUT_MS}, as in {@link HttpRpcClient#closeIdle()}
+     */
+    private void closeIdle() {
+        final long now = System.currentTimeMillis();
+        for (NodePool pool : pools.values()) {
+            final Iterator<Connection> connections = pool.idle.iterator();
+            while (connections.hasNext()) {
+                final Connection connection = connections.next();
+                if (now - connection.lastUsed >= HttpRpcClient.IDLE_TIMEOUT_MS) {
+                    connections.remove();
+                    pool.closed(connection);
+                }
+            }
+        }
+    }
+
+    private void timeout(Exchange exchange) {
+        if (exchange.future.isDone()) return;
+        final NodePool pool = pools.get(exchange.to);
+        final Connection connection = exchange.connection;
+        if (connection == null) {
+            pool.waiting.remove(exchange);
+        } else {
+            connection.exchange = null;
+            pool.closed(connection);
+        }
+        exchange.finish(null, new RpcException("RPC call to " + exchange.to + " timed out"));
+        pool.dispatch();
+    }
+
+    private final class Exchange {
+
+        final InetSocketAddress to;
+        final ByteBuffer request;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Connection connection;
+        boolean resent = false;
+        volatile ScheduledFuture<?> timeoutTask;
+
+        Exchange(InetSocketAddress to, ByteBuffer request) {
+            this.to = to;
+            this.request = request;
+        }
+
+        void finish(Object result, Throwable error) {
+            pending.remove(this);
+            final ScheduledFuture<?> timeoutTask = this.timeoutTask;
+            if (timeoutTask != null) timeoutTask.cancel(false);
+            if (error == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private final class NodePool {
+
+        final InetSocketAddress address;
+        final ArrayDeque<Exchange> waiting = new ArrayDeque<>();
+        final ArrayDeque<Connection> idle = new ArrayDeque<>();
+        int open = 0;
+
+        NodePool(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void submit(Exchange exchange) {
+            if (exchange.future.isDone()) return;
+            waiting.add(exchange);
+            dispatch();
+        }
+
+        void dispatch() {
+            while (!waiting.isEmpty()) {
+                final Connection idleConnection = idle.pollFirst();
+                if (idleConnection != null) {
+                    if (System.currentTimeMillis() - idleConnection.lastUsed >= HttpRpcClient.IDLE_TIMEOUT_MS) {
+                        closed(idleConnection);
+                        continue;
+                    }
+                    idleConnection.send(waiting.poll());
+                    continue;
+                }
+
+                if (open >= ConnectionProvider.maxRpcConnectionsPerNode()) return;
+                final Exchange exchange = waiting.poll();
+                try {
+                    final Connection connection = new Connection(this);
+                    open++;
+                    connection.send(exchange);
+                } catch (IOException | RuntimeException e) {
+                    // Including UnresolvedAddressException
+                    exchange.finish(null, new RpcException("Could not connect to " + address, e));
+                }
+            }
+        }
+
+        void completed(Connection connection, Object result, Throwable error, boolean reusable) {
+            final Exchange exchange = connection.exchange;
+            connection.exchange = null;
+            if (reusable) {
+                connection.lastUsed = System.currentTimeMillis();
+                connection.key.interestOps(SelectionKey.OP_READ);
+                idle.addFirst(connection);
+            } else {
+                closed(connection);
+            }
+            exchange.finish(result, error);
+            dispatch();
+        }
+
+        void failed(Connection connection, IOException e) {
+            final Exchange exchange = connection.exchange;
+            connection.exchange = null;
+            if (!idle.remove(connection) && exchange == null) {
+                // Already closed
+                return;
+            }
+            closed(connection);
+
+            if (exchange != null) {
+                exchange.connection = null;
+                if (connection.requests > 1 && !connection.responseStarted && !exchange.resent) {
+                    // The node has closed the idle connection before receiving the request, so it is safe to send it again
+                    LOG.debug("Kept-alive connection to {} was closed by the node, reconnecting", address);
+                    exchange.resent = true;
+                    waiting.addFirst(exchange);
+                } else {
+                    exchange.finish(null, new RpcException("RPC call to " + address + " failed", e));
+                }
+            }
+            dispatch();
+        }
+
+        void closed(Connection connection) {
+            connection.close();
+            open--;
+        }
+    }
+
+    private final class Connection {
+
+        final NodePool pool;
+        final SocketChannel channel;
+        final SelectionKey key;
+
+        Exchange exchange;
+        ResponseParser response;
+        boolean connected;
+        boolean responseStarted;
+        int requests = 0;
+        long lastUsed;
+
+        Connection(NodePool pool) throws IOException {
+            this.pool = pool;
+            this.channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().setKeepAlive(true);
+                connected = channel.connect(pool.address);
+                key = channel.register(selector, connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, this);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void send(Exchange exchange) {
+            this.exchange = exchange;
+            exchange.connection = this;
+            exchange.request.rewind();
+            requests++;
+            responseStarted = false;
+            response = new ResponseParser();
+            if (connected) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        void onConnectable() throws IOException {
+            if (channel.finishConnect()) {
+                connected = true;
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        void onWritable() throws IOException {
+            if (exchange == null) {
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            channel.write(exchange.request);
+            if (!exchange.request.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void onReadable() throws IOException {
+            readBuffer.clear();
+            final int read = channel.read(readBuffer);
+            if (read == 0) return;
+            if (exchange == null) {
+                // Idle connections may only be closed by the node
+                throw read == -1 ? new EOFException("Idle connection closed") : new IOException("Unexpected data on idle connection");
+            }
+
+            if (read == -1) {
+                if (!response.endOfStream()) throw new EOFException("Connection closed before complete response");
+            } else {
+                responseStarted = true;
+                readBuffer.flip();
+                response.feed(readBuffer);
+                if (!response.complete) return;
+            }
+
+            if (response.code < 200 || response.code >= 300) {
+                pool.completed(this, null, new RpcException("RPC call failed with HTTP status " + response.code, response.code), response.reusable && read != -1);
+                return;
+            }
+
+            final Object result;
+            try {
+                result = new JSONTokener(new InputStreamReader(response.body(), StandardCharsets.UTF_8)).nextValue();
+                if (!(result instanceof JSONObject) && !(result instanceof JSONArray)) {
+                    throw new JSONException("Response is not a JSON object nor array");
+                }
+            } catch (JSONException e) {
+                pool.completed(this, null, new RpcException("Invalid RPC response from " + pool.address, e), false);
+                return;
+            }
+            pool.completed(this, result, null, response.reusable && read != -1);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.trace("Exception during channel close", e);
+            }
+        }
+    }
+
+    /**
+     * Incremental parser of one HTTP/1.1 response, delimited by Content-Length, chunked encoding or closing the connection
+     */
+    private static final class ResponseParser {
+
+        private byte[] data = new byte[4096];
+        private int size = 0;
+        private int cursor = 0;
+
+        private boolean headersParsed = false;
+        int code;
+        boolean reusable = true;
+        private long contentLength = -1;
+        private boolean chunked = false;
+
+        private final ByteArrayOutputStream chunkedBody = new ByteArrayOutputStream();
+        private long chunkRemaining = -1;
+
+        boolean complete = false;
+        private int bodyStart, bodyEnd;
+
+        void feed(ByteBuffer buffer) throws IOException {
+            final int length = buffer.remaining();
+            if (size + length > data.length) {
+                final byte[] newData = new byte[Math.max(size + length, data.length * 2)];
+                System.arraycopy(data, 0, newData, 0, size);
+                data = newData;
+            }
+            buffer.get(data, size, length);
+            size += length;
+
+            if (!headersParsed && !parseHeaders()) return;
+
+            if (chunked) {
+                parseChunks();
+            } else if (contentLength >= 0 && size - cursor >= contentLength) {
+                bodyStart = cursor;
+                bodyEnd = (int) (cursor + contentLength);
+                complete = true;
+            }
+
+            // Nothing may follow the response, as the requests are not pipelined
+            if (complete && (chunked ? cursor : bodyEnd) != size) reusable = false;
+        }
+
+        /**
+         * @return true if the response was completed by the end of stream
+         */
+        boolean endOfStream() {
+            reusable = false;
+            if (complete) return true;
+            if (headersParsed && !chunked && contentLength < 0) {
+                bodyStart = cursor;
+                bodyEnd = size;
+                complete = true;
+            }
+            return complete;
+        }
+
+        ByteArrayInputStream body() {
+            if (chunked) return new ByteArrayInputStream(chunkedBody.toByteArray());
+            return new ByteArrayInputStream(data, bodyStart, bodyEnd - bodyStart);
+        }
+
+        private boolean parseHeaders() throws IOException {
+            final int end = indexOf(0, "\r\n\r\n");
+            if (end < 0) {
+                if (size > MAX_HEADERS_SIZE) throw new IOException("Response headers too long");
+                return false;
+            }
+
+            final String[] lines = new String(data, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+            final String[] status = lines[0].split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/1.")) throw new IOException("Invalid status line: " + lines[0]);
+            try {
+                code = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + lines[0]);
+            }
+
+            boolean keepAlive = status[0].equals("HTTP/1.1");
+            for (int i = 1; i < lines.length; i++) {
+                final int colon = lines[i].indexOf(':');
+                if (colon <= 0) continue;
+                final String name = lines[i].substring(0, colon).trim();
+                final String value = lines[i].substring(colon + 1).trim();
+
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid Content-Length: " + value);
+                    }
+                    if (contentLength > Integer.MAX_VALUE - 8) throw new IOException("Response too large");
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    if (value.equalsIgnoreCase("close")) keepAlive = false;
+                    else if (value.equalsIgnoreCase("keep-alive")) keepAlive = true;
+                }
+            }
+            // Body delimited by closing the connection
+            if (!chunked && contentLength < 0) keepAlive = false;
+
+            reusable = keepAlive;
+            cursor = end + 4;
+            headersParsed = true;
+            return true;
+        }
+
+        private void parseChunks() throws IOException {
+            while (!complete) {
+                if (chunkRemaining > 0) {
+                    final int available = (int) Math.min(size - cursor, chunkRemaining);
+                    if (available == 0) return;
+                    chunkedBody.write(data, cursor, available);
+                    cursor += available;
+                    chunkRemaining -= available;
+                    if (chunkRemaining > 0) return;
+                }
+                if (chunkRemaining == 0) {
+                    // Terminator of the chunk data
+                    if (size - cursor < 2) return;
+                    if (data[cursor] != '\r' || data[cursor + 1] != '\n') throw new IOException("Missing chunk terminator");
+                    cursor += 2;
+                    chunkRemaining = -1;
+                }
+
+                final int lineEnd = indexOf(cursor, "\r\n");
+                if (lineEnd < 0) return;
+                final String sizeLine = new String(data, cursor, lineEnd - cursor, StandardCharsets.ISO_8859_1);
+                final int extension = sizeLine.indexOf(';');
+                final long chunkSize;
+                try {
+                    chunkSize = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid chunk size: " + sizeLine);
+                }
+
+                if (chunkSize == 0) {
+                    // Last chunk, followed by optional trailers and an empty line
+                    final int trailersEnd = size - lineEnd >= 4 && data[lineEnd + 2] == '\r' && data[lineEnd + 3] == '\n'
+                            ? lineEnd + 4 : indexOf(lineEnd, "\r\n\r\n") + 4;
+                    if (trailersEnd < 4) return;
+                    cursor = trailersEnd;
+                    complete = true;
+                } else {
+                    if (chunkedBody.size() + chunkSize > Integer.MAX_VALUE - 8) throw new IOException("Response too large");
+                    cursor = lineEnd + 2;
+                    chunkRemaining = chunkSize;
+                }
+            }
+        }
+
+        private int indexOf(int from, String pattern) {
+            outer:
+            for (int i = from; i <= size - pattern.length(); i++) {
+                for (int j = 0; j < pattern.length(); j++) {
+                    if (data[i + j] != pattern.charAt(j)) continue outer;
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+}
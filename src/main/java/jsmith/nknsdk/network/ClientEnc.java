@@ -1,6 +1,7 @@
 package jsmith.nknsdk.network;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import com.iwebpp.crypto.TweetNaclFast;
 import jsmith.nknsdk.client.NKNClient;
 import jsmith.nknsdk.client.NKNClientException;
@@ -13,6 +14,7 @@ import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -43,8 +45,8 @@ public class ClientEnc {
         final SigchainP.SigChain.Builder sigChain = SigchainP.SigChain.newBuilder()
                 .setNonce(Crypto.nextRandomInt32())
                 .setDataSize(msg.getPayload().size())
-                .setSrcId(ByteString.copyFrom(Crypto.sha256(ct.identity.getFullIdentifier().getBytes(StandardCharsets.UTF_8))))
-                .setSrcPubkey(ByteString.copyFrom(ct.identity.wallet.getPublicKey()));
+                .setSrcId(ct.identity.getFullIdentifierHash())
+                .setSrcPubkey(ct.identity.wallet.getPublicKeyAsByteString());
 
         final ByteString bh = ct.currentSigChainBlockHash();
         if (bh != null) {
@@ -77,19 +79,23 @@ public class ClientEnc {
     }
 
 
-    public static ByteString generateNewReceipt(ByteString prevSignature, ClientTunnel ct) {
+    // Receipts always sign an empty SigChainElem, its encoding never changes
+    private static final byte[] RECEIPT_SIG_CHAIN_ELEM_BA;
+    static {
         final SigchainP.SigChainElem sigChainElem = SigchainP.SigChainElem.newBuilder().build();
 
-        final byte[] sigChainElemBA =
+        RECEIPT_SIG_CHAIN_ELEM_BA =
                 EncodeUtils.encodeBytes(sigChainElem.getId())
                         .concat(EncodeUtils.encodeBytes(sigChainElem.getNextPubkey()))
                         .concat(EncodeUtils.encodeBool(sigChainElem.getMining()))
                         .toByteArray();
+    }
 
+    public static ByteString generateNewReceipt(ByteString prevSignature, ClientTunnel ct) {
         final byte[] hexHash = Crypto.sha256(prevSignature.toByteArray());
-        final byte[] toSign = new byte[hexHash.length + sigChainElemBA.length];
+        final byte[] toSign = new byte[hexHash.length + RECEIPT_SIG_CHAIN_ELEM_BA.length];
         System.arraycopy(hexHash, 0, toSign, 0, hexHash.length);
-        System.arraycopy(sigChainElemBA, 0, toSign, hexHash.length, sigChainElemBA.length);
+        System.arraycopy(RECEIPT_SIG_CHAIN_ELEM_BA, 0, toSign, hexHash.length, RECEIPT_SIG_CHAIN_ELEM_BA.length);
         final ByteString signature = ByteString.copyFrom(ct.identity.wallet.sha256andSign(toSign));
 
         return MessagesP.ReceiptMsg.newBuilder()
@@ -137,16 +143,19 @@ public class ClientEnc {
 
         if (encrypt) {
             final String dest = destinations.get(0);
-            final byte[] nonce = TweetNaclFast.randombytes(24);
+            final byte[] nonce = Crypto.nextBoxNonce();
             final byte[] sharedKey = wallet.getSharedKey(dest);
-            final byte[] msg = message.toByteArray();
+            if (sharedKey == null) {
+                throw new NKNClientException("Failed to encrypt a message, invalid destination public key");
+            }
 
-            byte[] bytes = new TweetNaclFast.SecretBox(sharedKey).box(msg, nonce);
-            if (bytes == null) {
+            // Encrypted directly from the message into the payload, which is then wrapped without copying
+            final ByteBuffer payload = ByteBuffer.allocate(message.size() + TweetNaclFast.SecretBox.overheadLength);
+            if (!Crypto.secretBox(sharedKey, message.asReadOnlyByteBuffer(), payload, nonce)) {
                 throw new NKNClientException("Failed to encrypt a message");
             }
-            encMsg.setNonce(ByteString.copyFrom(nonce));
-            encMsg.setPayload(ByteString.copyFrom(bytes));
+            encMsg.setNonce(UnsafeByteOperations.unsafeWrap(nonce));
+            encMsg.setPayload(UnsafeByteOperations.unsafeWrap(payload.array()));
         } else {
             encMsg.setPayload(message);
         }
@@ -160,14 +169,20 @@ public class ClientEnc {
         if (enc.getEncrypted()) {
 
             final byte[] sharedKey = wallet.getSharedKey(from);
-            final byte[] ciphertext = enc.getPayload().toByteArray();
+            if (sharedKey == null) {
+                throw new NKNClientException("Failed to decrypt a message, invalid sender public key");
+            }
+            final ByteString ciphertext = enc.getPayload();
             final byte[] nonce = enc.getNonce().toByteArray();
 
-            byte[] plaintext = new TweetNaclFast.SecretBox(sharedKey).open(ciphertext, nonce);
-            if (plaintext == null) {
+            if (ciphertext.size() < TweetNaclFast.SecretBox.overheadLength) {
+                throw new NKNClientException("Failed to decrypt a message");
+            }
+            final ByteBuffer plaintext = ByteBuffer.allocate(ciphertext.size() - TweetNaclFast.SecretBox.overheadLength);
+            if (!Crypto.secretBoxOpen(sharedKey, ciphertext.asReadOnlyByteBuffer(), plaintext, nonce)) {
                 throw new NKNClientException("Failed to decrypt a message");
             }
-            return ByteString.copyFrom(plaintext);
+            return UnsafeByteOperations.unsafeWrap(plaintext.array());
 
         } else {
             return enc.getPayload();
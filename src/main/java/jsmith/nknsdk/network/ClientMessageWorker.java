@@ -2,6 +2,7 @@ package jsmith.nknsdk.network;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import jsmith.nknsdk.client.MessageStream;
 import jsmith.nknsdk.client.NKNClient;
 import jsmith.nknsdk.client.NKNClientException;
 import jsmith.nknsdk.client.SimpleMessagesProtocol;
@@ -11,6 +12,7 @@ import jsmith.nknsdk.utils.Crypto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -108,59 +110,81 @@ public class ClientMessageWorker {
         final MessagesP.PayloadType type = message.getType();
         final ByteString replyTo = message.getReplyToPid();
         final ByteString messageID = message.getPid();
-        final ByteString data = message.getData();
 
         if (!isEncrypted && type != MessagesP.PayloadType.ACK) {
             if (ct.forClient.getPeerEncryptionRequirement() == NKNClient.PeerEncryptionRequirement.ON_NON_ENCRYPTED_MESSAGE___ALLOW_ACK_DROP_OTHER) return;
         }
 
-        String text = null;
-        try {
-            if (type == MessagesP.PayloadType.TEXT) {
-                text = MessagesP.TextData.parseFrom(data).getText();
+        final ByteString data;
+        if (message.getCompression().isEmpty()) {
+            data = message.getData();
+        } else {
+            final PayloadCodec codec = PayloadCodecs.get(message.getCompression());
+            if (codec == null) {
+                LOG.warn("Message compressed by unknown codec '{}', dropping", message.getCompression());
+                return;
+            }
+            try {
+                data = codec.decompress(message.getData(), PayloadCodecs.MAX_DECOMPRESSED_MESSAGE_SIZE);
+            } catch (IOException e) {
+                LOG.warn("Failed to decompress message, dropping", e);
+                return;
             }
-        } catch (InvalidProtocolBufferException e) {
-            LOG.warn("Received message of TEXT type, but the content isn't valid text");
         }
 
-        final SimpleMessagesProtocol.ReceivedMessage receivedMessage = new SimpleMessagesProtocol.ReceivedMessage(
-            from, messageID, isEncrypted, type, type == MessagesP.PayloadType.TEXT ? text : type == MessagesP.PayloadType.BINARY ? data : null
-        );
-
         if (type == MessagesP.PayloadType.SESSION) {
             sessionHandler.onMessage(this, from, messageID, data);
+        } else if (type == MessagesP.PayloadType.ACK) {
+            // ACKs are only interesting when someone waits for them
+            final MessageJob job = inboundQ.get(replyTo);
+            if (job != null) {
+                completeJob(job, from, new SimpleMessagesProtocol.ReceivedMessage(from, messageID, isEncrypted, type, data));
+            }
         } else {
+            final SimpleMessagesProtocol.ReceivedMessage receivedMessage = new SimpleMessagesProtocol.ReceivedMessage(from, messageID, isEncrypted, type, data);
 
             final MessageJob job = inboundQ.get(replyTo);
             if (job != null) {
-                for (int i = 0; i < job.destination.size(); i++) {
-                    if (job.destination.get(i).equalsIgnoreCase(from)) {
-                        final CompletableFuture<SimpleMessagesProtocol.ReceivedMessage> p = job.promise.get(i);
-                        events.submit(() -> p.complete(receivedMessage));
-                    }
-                }
+                completeJob(job, from, receivedMessage);
+            }
+
+            final MessageStream stream = ct.forClient.simpleMessagesProtocol().getMessageStream();
+            if (stream != null) {
+                stream.offer(receivedMessage);
             }
 
             if (ct.forClient.simpleMessagesProtocol().getOnMessageListener() != null) {
-                if (type != MessagesP.PayloadType.ACK) {
-                    events.submit(() -> {
-                        Object response = ct.forClient.simpleMessagesProtocol().getOnMessageListener().apply(receivedMessage);
-                        if (response != null) {
-                            sendMessageAsync(Collections.singletonList(from), messageID, response);
-                        } else if (!ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs()) {
-                            sendAckMessage(from, messageID);
-                        }
-                    });
-                }
-            } else {
-                if (type != MessagesP.PayloadType.ACK && !ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs()) {
-                    sendAckMessage(from, messageID);
+                final Runnable onMessage = () -> {
+                    Object response = ct.forClient.simpleMessagesProtocol().getOnMessageListener().apply(receivedMessage);
+                    if (response != null) {
+                        sendMessageAsync(Collections.singletonList(from), messageID, response);
+                    } else if (!ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs()) {
+                        sendAckMessage(from, messageID);
+                    }
+                };
+
+                final PeerDispatchLanes lanes = ct.forClient.simpleMessagesProtocol().getDispatchLanes();
+                if (lanes != null) {
+                    lanes.dispatch(from, onMessage);
+                } else {
+                    events.submit(onMessage);
                 }
+            } else if (!ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs()) {
+                sendAckMessage(from, messageID);
             }
         }
 
     }
 
+    private void completeJob(MessageJob job, String from, SimpleMessagesProtocol.ReceivedMessage receivedMessage) {
+        for (int i = 0; i < job.destination.size(); i++) {
+            if (job.destination.get(i).equalsIgnoreCase(from)) {
+                final CompletableFuture<SimpleMessagesProtocol.ReceivedMessage> p = job.promise.get(i);
+                events.submit(() -> p.complete(receivedMessage));
+            }
+        }
+    }
+
 
 
 
@@ -275,6 +299,18 @@ public class ClientMessageWorker {
     public List<CompletableFuture<SimpleMessagesProtocol.ReceivedMessage>> sendMessageAsync(List<String> destination, ByteString replyTo, MessagesP.PayloadType type, ByteString message) {
         final ByteString replyToMessageID = replyTo == null ? ByteString.copyFrom(new byte[0]) : replyTo;
 
+        // Compressed before encryption, encrypted data don't compress
+        ByteString data = message;
+        String compression = "";
+        if (type == MessagesP.PayloadType.BINARY || type == MessagesP.PayloadType.TEXT) {
+            final PayloadCodec codec = ct.forClient.simpleMessagesProtocol().getPayloadCompression();
+            final ByteString compressed = PayloadCodecs.compressIfSmaller(codec, message);
+            if (compressed != null) {
+                data = compressed;
+                compression = codec.getName();
+            }
+        }
+
         if (ct.forClient.getEncryptionLevel() == NKNClient.EncryptionLevel.CONVERT_MULTICAST_TO_UNICAST_AND_ENCRYPT) {
 
             final List<CompletableFuture<SimpleMessagesProtocol.ReceivedMessage>> promises = new ArrayList<>();
@@ -285,7 +321,8 @@ public class ClientMessageWorker {
                 final MessagesP.Payload.Builder payload = MessagesP.Payload.newBuilder()
                         .setType(type)
                         .setPid(messageID)
-                        .setData(message)
+                        .setData(data)
+                        .setCompression(compression)
                         .setNoAck(ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs());
                 if (type != MessagesP.PayloadType.SESSION) {
                     payload.setReplyToPid(replyToMessageID);
@@ -308,7 +345,8 @@ public class ClientMessageWorker {
             final MessagesP.Payload.Builder payload = MessagesP.Payload.newBuilder()
                     .setType(type)
                     .setPid(messageID)
-                    .setData(message)
+                    .setData(data)
+                    .setCompression(compression)
                     .setNoAck(ct.forClient.simpleMessagesProtocol().isNoAutomaticACKs());
             if (type != MessagesP.PayloadType.SESSION) {
                 payload.setReplyToPid(replyToMessageID);
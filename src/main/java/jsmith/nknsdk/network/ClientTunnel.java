@@ -1,12 +1,9 @@
 package jsmith.nknsdk.network;
 
-import com.darkyen.dave.WebbException;
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 import jsmith.nknsdk.client.Identity;
 import jsmith.nknsdk.client.NKNClient;
 import jsmith.nknsdk.client.NKNClientException;
-import jsmith.nknsdk.network.proto.MessagesP;
 import jsmith.nknsdk.network.session.SessionHandler;
 import jsmith.nknsdk.utils.CountLatch;
 import org.bouncycastle.util.encoders.DecoderException;
@@ -42,18 +39,24 @@ public class ClientTunnel {
     private static int id = 0;
     final int myId;
     private final ClientMessageWorker cm;
+    private final ReceiptWorker receipts;
     final NKNClient forClient;
     public final ArrayList<ClientTunnel> multiclients = new ArrayList<>();
     private final SessionHandler handler;
+    private final InboundPipeline inbound;
+    private final boolean ownsInbound;
     public ClientTunnel(Identity identity, NKNClient forClient) {
-        this(identity, forClient, null);
+        this(identity, forClient, null, null);
     }
-    ClientTunnel(Identity identity, NKNClient forClient, SessionHandler handler) {
+    ClientTunnel(Identity identity, NKNClient forClient, SessionHandler handler, InboundPipeline inbound) {
         this.identity = identity;
         this.myId = ++id;
         this.forClient = forClient;
         this.handler = handler == null ? new SessionHandler(this, myId) : handler;
+        this.ownsInbound = inbound == null;
+        this.inbound = inbound == null ? new InboundPipeline(myId) : inbound;
         cm = new ClientMessageWorker(this, myId, this.handler);
+        receipts = new ReceiptWorker(this, myId);
     }
 
     boolean running = false;
@@ -61,6 +64,8 @@ public class ClientTunnel {
         if (running) throw new IllegalStateException("Client has already started, cannot start again");
         running = true;
 
+        if (ownsInbound) inbound.start(forClient.getInboundParseParallelism(), forClient.getInboundParallelism());
+        receipts.start();
         reconnect();
         messageHold.countDown();
         cm.start();
@@ -78,7 +83,7 @@ public class ClientTunnel {
             while (multiclients.size() < multiclientCount) {
                 final String prefix = "__" + multiclientPrefix.getAndIncrement() + "__";
                 final Identity id = new Identity(prefix + (identity.name.isEmpty() ? "" : "." + identity.name), identity.wallet);
-                final ClientTunnel ct = new ClientTunnel(id, forClient, handler);
+                final ClientTunnel ct = new ClientTunnel(id, forClient, handler, inbound);
                 multiclients.add(ct);
                 if (running) ct.startClient();
             }
@@ -148,7 +153,7 @@ public class ClientTunnel {
             }
 
             return true;
-        } catch (WebbException e) {
+        } catch (RpcException e) {
             LOG.warn("RPC Request failed");
             return false;
         }
@@ -168,7 +173,13 @@ public class ClientTunnel {
             ct.close();
         }
         cm.close();
+        receipts.close();
         ws.close();
+        if (ownsInbound) inbound.close();
+    }
+
+    void onNodeMessageReceipt(ByteString prevSignature) {
+        receipts.onNodeMessage(prevSignature);
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
@@ -176,7 +187,7 @@ public class ClientTunnel {
         LOG.debug("Client is connecting to node ws: {}", directNodeWS);
         final boolean[] success = {true};
         final CountDownLatch closeLatch = new CountDownLatch(1);
-        ws = new WsApi(directNodeWS);
+        ws = new WsApi(directNodeWS, forClient.getWebsocketTransport(), forClient.getWebsocketCompression());
 
         ws.setJsonMessageListener(json -> {
             if (json.has("Error") && json.getInt("Error") == ErrorCodes.WRONG_NODE) {
@@ -279,36 +290,7 @@ public class ClientTunnel {
             }
         });
 
-        ws.setProtobufMessageListener(bytes -> {
-            try {
-                if (running) {
-                    final MessagesP.Message msg = MessagesP.Message.parseFrom(bytes);
-                    if (msg.getMessageType() == MessagesP.MessageType.NODE_MSG) {
-                        final MessagesP.NodeMsg nodeToClientMsg = MessagesP.NodeMsg.parseFrom(msg.getMessage());
-
-                        final String from = nodeToClientMsg.getSrc();
-                        final MessagesP.EncryptedMessage pldMsg = MessagesP.EncryptedMessage.parseFrom(nodeToClientMsg.getPayload());
-
-                        final ByteString prevSig = nodeToClientMsg.getPrevSignature();
-                        if (prevSig != null && prevSig.size() != 0) {
-                            ByteString receiptPayload = ClientEnc.generateNewReceipt(prevSig, this);
-                            final ByteString receiptMsg = MessagesP.Message.newBuilder()
-                                    .setMessage(receiptPayload)
-                                    .setMessageType(MessagesP.MessageType.RECEIPT_MSG)
-                                    .build().toByteString();
-                            ws.sendPacket(receiptMsg);
-                        }
-                        cm.onInboundMessage(from, pldMsg);
-                    } else {
-                        LOG.warn("Received unsupported message type, ignoring ({})", msg.getMessageType());
-                    }
-                }
-
-            } catch (InvalidProtocolBufferException e) {
-                LOG.warn("Got invalid binary message, ignoring");
-                e.printStackTrace();
-            }
-        });
+        ws.setProtobufMessageListener((bytes, onSpace) -> !running || inbound.offerPacket(this, bytes, onSpace));
 
         ws.setOpenListener(() -> {
             final JSONObject setClientReq = new JSONObject();
@@ -5,6 +5,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  *
@@ -15,6 +24,26 @@ public class ConnectionProvider {
 
     private static final Object lock = new Object();
 
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "RpcTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Resolves node names for {@link #attemptAsync(Function)}, so that a slow lookup delays neither the timer nor the RPC client thread
+     */
+    private static final ExecutorService resolver;
+    static {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread(r, "RpcResolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        resolver = pool;
+    }
+
     private static String[] bootstrapNodes = {
 
             "mainnet-seed-0001.nkn.org:30003",
@@ -68,6 +97,7 @@ public class ConnectionProvider {
     private static int rpcCallTimeoutMS = 5000;
     private static int messageAckTimeoutMS = 5000;
     private static int sessionTimeoutMS = 10000;
+    private static int maxRpcConnectionsPerNode = 4;
 
 
     public static int maxRetries() {
@@ -118,6 +148,18 @@ public class ConnectionProvider {
         }
     }
 
+    public static int maxRpcConnectionsPerNode() {
+        synchronized (lock) {
+            return maxRpcConnectionsPerNode;
+        }
+    }
+    public static void maxRpcConnectionsPerNode(int maxRpcConnectionsPerNode) {
+        if (maxRpcConnectionsPerNode < 1) throw new IllegalArgumentException("Max connections must be positive number");
+        synchronized (lock) {
+            ConnectionProvider.maxRpcConnectionsPerNode = maxRpcConnectionsPerNode;
+        }
+    }
+
     public static void setBootstrapNodes(String[] nodes) {
         synchronized (lock) {
             bootstrapNodes = nodes;
@@ -164,4 +206,63 @@ public class ConnectionProvider {
         throw error;
     }
 
+    /**
+     * Asynchronous variant of {@link #attempt(ThrowingLambda)}, the pauses between attempts are scheduled on a timer instead of sleeping
+     */
+    public static <T> CompletableFuture<T> attemptAsync(Function<InetSocketAddress, CompletableFuture<T>> action) {
+        final String[] nodes;
+        synchronized (lock) {
+            nodes = bootstrapNodes;
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        attemptAsync(action, result, nodes, (int) (Math.random() * nodes.length), 0, maxRetries());
+        return result;
+    }
+
+    private static <T> void attemptAsync(Function<InetSocketAddress, CompletableFuture<T>> action, CompletableFuture<T> result, String[] nodes, int nodeI, int attempt, int retries) {
+        final int nextNodeI = (nodeI + 1) % nodes.length;
+
+        final String addr = nodes[nodeI];
+        final int idx = addr.lastIndexOf(':');
+        final String hostname;
+        final int port;
+        try {
+            hostname = addr.substring(0, idx);
+            port = Integer.parseInt(addr.substring(idx + 1));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            LOG.warn("Attempt {} failed", attempt);
+            LOG.warn("Invalid host address");
+            if (attempt >= retries) {
+                result.completeExceptionally(new IllegalArgumentException("Invalid host address: " + addr, e));
+            } else {
+                attemptAsync(action, result, nodes, nextNodeI, attempt + 1, retries);
+            }
+            return;
+        }
+
+        CompletableFuture.supplyAsync(() -> new InetSocketAddress(hostname, port), resolver).thenCompose(node -> {
+            if (node.isUnresolved()) throw new RpcException("Could not resolve " + hostname);
+            return action.apply(node);
+        }).whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            LOG.warn("Attempt {} failed", attempt);
+            LOG.debug("Caused by:", cause);
+            if (attempt >= retries) {
+                result.completeExceptionally(cause);
+            } else {
+                timer.schedule(() -> attemptAsync(action, result, nodes, nextNodeI, attempt + 1, retries), rpcCallTimeoutMS(), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    static ScheduledExecutorService timer() {
+        return timer;
+    }
+
 }
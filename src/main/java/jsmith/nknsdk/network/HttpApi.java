@@ -1,17 +1,18 @@
 package jsmith.nknsdk.network;
 
-import com.darkyen.dave.Response;
-import com.darkyen.dave.ResponseTranslator;
-import com.darkyen.dave.Webb;
 import jsmith.nknsdk.client.NKNExplorerException;
 import org.bouncycastle.util.encoders.Hex;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  *
@@ -20,8 +21,25 @@ public class HttpApi {
 
     private static final Logger LOG = LoggerFactory.getLogger(HttpApi.class);
 
-    private static final Webb webb = new Webb(null);
+    private static final HttpRpcClient client = new HttpRpcClient();
 
+    // Started on first use, so that only the users of the asynchronous API pay for its thread
+    private static AsyncHttpRpcClient asyncClient = null;
+
+    /**
+     * @return the asynchronous client, a new one if the previous one has stopped because its selector failed
+     */
+    private static synchronized AsyncHttpRpcClient asyncClient() {
+        if (asyncClient == null || !asyncClient.isRunning()) {
+            if (asyncClient != null) LOG.warn("Asynchronous RPC client has stopped, starting new one");
+            asyncClient = new AsyncHttpRpcClient(ConnectionProvider.timer());
+        }
+        return asyncClient;
+    }
+
+    /**
+     * @throws RpcException if the node can't be reached or doesn't return a valid response
+     */
     public static JSONObject rpcCallJson(InetSocketAddress to, String method, JSONObject parameters) {
 
         final JSONObject requestBody = new JSONObject();
@@ -29,15 +47,145 @@ public class HttpApi {
         requestBody.put("method", method);
         requestBody.put("params", parameters);
 
-        Response<String> response = webb
-                .post("http://" + to.getHostString() + ":" + to.getPort())
-                .ensureSuccess()
-                .bodyJson(requestBody.toString())
-                .connectTimeout(ConnectionProvider.rpcCallTimeoutMS())
-                .readTimeout(ConnectionProvider.rpcCallTimeoutMS())
-                .execute(ResponseTranslator.STRING_TRANSLATOR);
+        final Object response = client.call(to, requestBody);
+        if (!(response instanceof JSONObject)) throw new RpcException("Expected JSON object as response of " + method);
+        return (JSONObject) response;
+    }
+
+    /**
+     * Sends all calls in one JSON-RPC batch request and completes their futures from the response.
+     * Futures are completed only if the whole batch was answered, so the batch can be sent again when this method throws.
+     * Nodes which decode the request as a single object (like nknd) reject the batch, the calls then have to be sent one by one.
+     *
+     * @return false if the node rejected the batch request as a whole, the futures are not completed then
+     * @throws RpcException if the node can't be reached or doesn't return a valid response
+     */
+    public static boolean rpcBatch(InetSocketAddress to, List<RpcCall> calls) {
+        if (calls.isEmpty()) return true;
+
+        final Object response;
+        try {
+            response = client.call(to, batchRequest(calls));
+        } catch (RpcException e) {
+            if (isBatchRejected(e)) return false;
+            throw e;
+        }
+        return completeBatch(calls, response);
+    }
+
+    /**
+     * Asynchronous variant of {@link #rpcBatch(InetSocketAddress, List)}, served by a non-blocking client.
+     * The future is completed on the client thread, so its dependent stages must not block.
+     */
+    public static CompletableFuture<Boolean> rpcBatchAsync(InetSocketAddress to, List<RpcCall> calls) {
+        if (calls.isEmpty()) return CompletableFuture.completedFuture(true);
+
+        final CompletableFuture<Boolean> answered = new CompletableFuture<>();
+        asyncClient().call(to, batchRequest(calls)).whenComplete((response, error) -> {
+            if (error == null) {
+                answered.complete(completeBatch(calls, response));
+            } else if (error instanceof RpcException && isBatchRejected((RpcException) error)) {
+                answered.complete(false);
+            } else {
+                answered.completeExceptionally(error);
+            }
+        });
+        return answered;
+    }
+
+    private static JSONArray batchRequest(List<RpcCall> calls) {
+        final JSONArray requestBody = new JSONArray();
+        for (int i = 0; i < calls.size(); i++) {
+            final RpcCall call = calls.get(i);
+            final JSONObject request = new JSONObject();
+            request.put("jsonrpc", "2.0");
+            request.put("id", i);
+            request.put("method", call.method);
+            request.put("params", call.params);
+            requestBody.put(request);
+        }
+        return requestBody;
+    }
+
+    /**
+     * Only Bad Request means the node doesn't understand batches, other statuses (e.g. rate limiting) are errors of this request
+     */
+    private static boolean isBatchRejected(RpcException e) {
+        return e.getHttpStatus() == 400;
+    }
+
+    /**
+     * @return false if the response is not an array, i.e. an error of the whole request
+     */
+    private static boolean completeBatch(List<RpcCall> calls, Object response) {
+        if (!(response instanceof JSONArray)) {
+            LOG.debug("Batch request rejected: {}", response);
+            return false;
+        }
+
+        final JSONArray responses = (JSONArray) response;
+        final JSONObject[] results = new JSONObject[calls.size()];
+        for (int i = 0; i < responses.length(); i++) {
+            final JSONObject callResponse = responses.optJSONObject(i);
+            if (callResponse == null) continue;
+            final int id = callResponse.optInt("id", -1);
+            if (id < 0 || id >= results.length) continue;
+            results[id] = callResponse;
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            final RpcCall call = calls.get(i);
+            final JSONObject callResponse = results[i];
+            if (callResponse == null) {
+                call.result.completeExceptionally(new NKNExplorerException(call.method, call.params, "Missing response"));
+            } else if (callResponse.has("error")) {
+                call.result.completeExceptionally(new NKNExplorerException(call.method, call.params, callResponse.get("error")));
+            } else if (!callResponse.has("result")) {
+                call.result.completeExceptionally(new NKNExplorerException(call.method, call.params, "Missing field: 'result'"));
+            } else {
+                call.result.complete(callResponse.get("result"));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Asynchronous variant of {@link #rpcCallJson(InetSocketAddress, String, JSONObject)}, served by a non-blocking client.
+     * The future is completed on the client thread, so its dependent stages must not block.
+     */
+    public static CompletableFuture<JSONObject> rpcCallJsonAsync(InetSocketAddress to, String method, JSONObject parameters) {
+        final JSONObject requestBody = new JSONObject();
+        requestBody.put("jsonrpc", "2.0");
+        requestBody.put("method", method);
+        requestBody.put("params", parameters);
+
+        return asyncClient().call(to, requestBody).thenApply(response -> {
+            if (!(response instanceof JSONObject)) throw new RpcException("Expected JSON object as response of " + method);
+            return (JSONObject) response;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #rpcRequest(InetSocketAddress, String, HashMap)},
+     * the future fails with {@link NKNExplorerException} if the node returned an error.
+     */
+    public static CompletableFuture<Object> rpcRequestAsync(InetSocketAddress server, String method, Map<String, Object> params) {
+        return rpcRequestAsync(server, method, new JSONObject(params));
+    }
 
-        return new JSONObject(response.getBody());
+    /**
+     * @see #rpcRequestAsync(InetSocketAddress, String, Map)
+     */
+    public static CompletableFuture<Object> rpcRequestAsync(InetSocketAddress server, String method, JSONObject paramsJson) {
+        return rpcCallJsonAsync(server, method, paramsJson).thenApply(response -> {
+            if (response.has("error")) {
+                throw new CompletionException(new NKNExplorerException(method, paramsJson, response.get("error")));
+            }
+            if (!response.has("result")) {
+                throw new CompletionException(new NKNExplorerException(method, paramsJson, "Missing field: 'result'"));
+            }
+            return response.get("result");
+        });
     }
 
     public static Object rpcRequest(InetSocketAddress server, String method) throws NKNExplorerException {
@@ -0,0 +1,407 @@
+package jsmith.nknsdk.network;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal HTTP/1.1 client for JSON-RPC calls, which keeps the connections to the nodes alive and reuses them.
+ * Each node has its own pool of at most {@link ConnectionProvider#maxRpcConnectionsPerNode()} connections,
+ * responses are parsed directly from the socket stream.
+ */
+class HttpRpcClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpRpcClient.class);
+
+    /**
+     * Connections idle for longer are not reused, as the node has likely closed them already
+     */
+    static final long IDLE_TIMEOUT_MS = 30_000;
+
+    private static final int MAX_HEADER_LINE = 8192;
+
+    private final ConcurrentHashMap<InetSocketAddress, NodePool> pools = new ConcurrentHashMap<>();
+
+    HttpRpcClient() {
+        // Calls go to random nodes, so idle connections of a node may not be acquired again for a long time
+        ConnectionProvider.timer().scheduleWithFixedDelay(this::closeIdle, IDLE_TIMEOUT_MS / 2, IDLE_TIMEOUT_MS / 2, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes connections idle for longer than {@link #IDLE_TIMEOUT_MS}, which the nodes have likely closed already
+     */
+    void closeIdle() {
+        for (NodePool pool : pools.values()) {
+            pool.closeIdle();
+        }
+    }
+
+    /**
+     * @param request single call or a batch
+     * @return parsed {@link JSONObject} or {@link JSONArray} response
+     */
+    Object call(InetSocketAddress to, Object request) {
+        final byte[] body = serialize(request);
+        final int timeout = ConnectionProvider.rpcCallTimeoutMS();
+        final NodePool pool = pools.computeIfAbsent(to, NodePool::new);
+
+        while (true) {
+            final Connection connection = pool.acquire(timeout);
+            final boolean reused = connection.requests > 0;
+            try {
+                connection.socket.setSoTimeout(timeout);
+                connection.writeRequest(to, body);
+                return connection.readResponse();
+            } catch (SocketTimeoutException e) {
+                throw new RpcException("RPC call to " + to + " timed out", e);
+            } catch (IOException e) {
+                if (reused && !connection.responseStarted) {
+                    // The node has closed the idle connection before receiving the request, so it is safe to send it again
+                    LOG.debug("Kept-alive connection to {} was closed by the node, reconnecting", to);
+                    continue;
+                }
+                throw new RpcException("RPC call to " + to + " failed", e);
+            } catch (JSONException e) {
+                throw new RpcException("Invalid RPC response from " + to, e);
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * @return host and port for the Host header, IPv6 literals in brackets
+     */
+    static String hostHeader(InetSocketAddress to) {
+        final String host = to.getHostString();
+        return (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + to.getPort();
+    }
+
+    static byte[] serialize(Object request) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            if (request instanceof JSONArray) {
+                ((JSONArray) request).write(writer);
+            } else {
+                ((JSONObject) request).write(writer);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class NodePool {
+
+        private final InetSocketAddress address;
+        private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+        private int open = 0;
+
+        NodePool(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        Connection acquire(int timeout) {
+            final long deadline = System.currentTimeMillis() + timeout;
+            synchronized (this) {
+                while (true) {
+                    Connection connection;
+                    while ((connection = idle.pollFirst()) != null) {
+                        if (System.currentTimeMillis() - connection.lastUsed < IDLE_TIMEOUT_MS && !connection.socket.isClosed()) {
+                            return connection;
+                        }
+                        connection.close();
+                        open--;
+                    }
+                    if (open < ConnectionProvider.maxRpcConnectionsPerNode()) {
+                        open++;
+                        break;
+                    }
+
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (timeout > 0 && remaining <= 0) {
+                        throw new RpcException("No free RPC connection to " + address);
+                    }
+                    try {
+                        wait(timeout > 0 ? remaining : 0);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RpcException("Interrupted while waiting for RPC connection to " + address, e);
+                    }
+                }
+            }
+
+            final Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                socket.connect(address, timeout);
+                return new Connection(socket);
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {}
+                synchronized (this) {
+                    open--;
+                    notify();
+                }
+                throw new RpcException("Could not connect to " + address, e);
+            }
+        }
+
+        synchronized void closeIdle() {
+            final Iterator<Connection> connections = idle.iterator();
+            while (connections.hasNext()) {
+                final Connection connection = connections.next();
+                if (System.currentTimeMillis() - connection.lastUsed >= IDLE_TIMEOUT_MS || connection.socket.isClosed()) {
+                    connections.remove();
+                    connection.close();
+                    open--;
+                    notify();
+                }
+            }
+        }
+
+        synchronized void release(Connection connection) {
+            if (connection.reusable) {
+                connection.lastUsed = System.currentTimeMillis();
+                idle.addFirst(connection);
+            } else {
+                connection.close();
+                open--;
+            }
+            notify();
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        private int requests = 0;
+        private long lastUsed;
+        private boolean responseStarted;
+        private boolean reusable;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void writeRequest(InetSocketAddress to, byte[] body) throws IOException {
+            requests++;
+            responseStarted = false;
+            reusable = false;
+
+            final String head = "POST / HTTP/1.1\r\n" +
+                    "Host: " + hostHeader(to) + "\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Accept: application/json\r\n" +
+                    "Content-Length: " + body.length + "\r\n" +
+                    "Connection: keep-alive\r\n" +
+                    "\r\n";
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body);
+            out.flush();
+        }
+
+        Object readResponse() throws IOException {
+            final String statusLine = readLine();
+            if (statusLine == null) throw new EOFException("Connection closed before response");
+            responseStarted = true;
+
+            final String[] status = statusLine.split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/1.")) throw new IOException("Invalid status line: " + statusLine);
+            final int code;
+            try {
+                code = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + statusLine);
+            }
+
+            boolean keepAlive = status[0].equals("HTTP/1.1");
+            long contentLength = -1;
+            boolean chunked = false;
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                final int colon = line.indexOf(':');
+                if (colon <= 0) continue;
+                final String name = line.substring(0, colon).trim();
+                final String value = line.substring(colon + 1).trim();
+
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid Content-Length: " + value);
+                    }
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    if (value.equalsIgnoreCase("close")) keepAlive = false;
+                    else if (value.equalsIgnoreCase("keep-alive")) keepAlive = true;
+                }
+            }
+            if (line == null) throw new EOFException("Connection closed in response headers");
+
+            final InputStream body;
+            if (chunked) {
+                body = new ChunkedInputStream();
+            } else if (contentLength >= 0) {
+                body = new BoundedInputStream(contentLength);
+            } else {
+                // Body delimited by closing the connection
+                body = in;
+                keepAlive = false;
+            }
+
+            if (code < 200 || code >= 300) {
+                drain(body);
+                reusable = keepAlive;
+                throw new RpcException("RPC call failed with HTTP status " + code, code);
+            }
+
+            final Object result = new JSONTokener(new InputStreamReader(body, StandardCharsets.UTF_8)).nextValue();
+            if (!(result instanceof JSONObject) && !(result instanceof JSONArray)) {
+                throw new JSONException("Response is not a JSON object nor array");
+            }
+            drain(body);
+            reusable = keepAlive;
+            return result;
+        }
+
+        private void drain(InputStream body) throws IOException {
+            if (body == in) return;
+            final byte[] skip = new byte[512];
+            //noinspection StatementWithEmptyBody
+            while (body.read(skip) != -1);
+        }
+
+        /**
+         * @return line without the line terminator, or null if the stream ended before any byte
+         */
+        private String readLine() throws IOException {
+            final StringBuilder sb = new StringBuilder(64);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    final int length = sb.length();
+                    if (length > 0 && sb.charAt(length - 1) == '\r') sb.setLength(length - 1);
+                    return sb.toString();
+                }
+                if (sb.length() >= MAX_HEADER_LINE) throw new IOException("Header line too long");
+                sb.append((char) b);
+            }
+            if (sb.length() == 0) return null;
+            throw new EOFException("Connection closed in the middle of a line");
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOG.trace("Exception during socket close", e);
+            }
+        }
+
+        private final class BoundedInputStream extends InputStream {
+
+            private long remaining;
+
+            BoundedInputStream(long length) {
+                this.remaining = length;
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) return -1;
+                final int b = in.read();
+                if (b == -1) throw new EOFException("Connection closed in response body");
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) return -1;
+                final int read = in.read(b, off, (int) Math.min(len, remaining));
+                if (read == -1) throw new EOFException("Connection closed in response body");
+                remaining -= read;
+                return read;
+            }
+        }
+
+        private final class ChunkedInputStream extends InputStream {
+
+            private long chunkRemaining = 0;
+            private boolean finished = false;
+
+            private boolean nextChunk() throws IOException {
+                if (finished) return false;
+                if (chunkRemaining == 0) {
+                    final String sizeLine = readLine();
+                    if (sizeLine == null) throw new EOFException("Connection closed in chunked body");
+                    final int extension = sizeLine.indexOf(';');
+                    try {
+                        chunkRemaining = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid chunk size: " + sizeLine);
+                    }
+                    if (chunkRemaining == 0) {
+                        // Skip trailers
+                        String trailer;
+                        do {
+                            trailer = readLine();
+                        } while (trailer != null && !trailer.isEmpty());
+                        finished = true;
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private void chunkRead(int read) throws IOException {
+                if (read == -1) throw new EOFException("Connection closed in chunked body");
+                chunkRemaining -= read;
+                if (chunkRemaining == 0) {
+                    final String terminator = readLine();
+                    if (terminator == null || !terminator.isEmpty()) throw new IOException("Missing chunk terminator");
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (!nextChunk()) return -1;
+                final int b = in.read();
+                chunkRead(b == -1 ? -1 : 1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (!nextChunk()) return -1;
+                final int read = in.read(b, off, (int) Math.min(len, chunkRemaining));
+                chunkRead(read);
+                return read;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package jsmith.nknsdk.network;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jsmith.nknsdk.network.proto.MessagesP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes inbound binary packets of all tunnels of one client, so that websocket read threads only hand the data over.
+ *
+ * Packets go through one of the parse lanes, which unwraps the node message and queues its receipt,
+ * and then through one of the decrypt lanes, which decrypts the payload and dispatches it to the {@link ClientMessageWorker}.
+ * Parse lane is chosen by the tunnel, so packets of one tunnel are parsed in order, and decrypt lane by the message source,
+ * so messages from one source are always processed in order, while different sources are decrypted in parallel.
+ * All stage queues are bounded. A full parse lane refuses new packets until it has drained to half,
+ * a full decrypt lane blocks the parse lane until the pipeline is closed.
+ */
+public class InboundPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InboundPipeline.class);
+
+    public static final int PARSE_QUEUE_SIZE = 1024;
+    public static final int LANE_QUEUE_SIZE = 256;
+
+    /**
+     * How often a producer blocked on a full queue checks whether the pipeline has been closed
+     */
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private Lane<RawPacket>[] parseLanes;
+    private Lane<ParsedPacket>[] decryptLanes;
+
+    private volatile boolean running = false;
+    private final int myId;
+
+    InboundPipeline(int myId) {
+        this.myId = myId;
+    }
+
+    /**
+     * Never blocks, so that websocket dispatch threads shared by all clients are not held by a client which is behind
+     *
+     * @param onSpace run once the refused packet may be offered again
+     * @return false if the parse lane of the tunnel is full, packets of a closed pipeline are dropped
+     */
+    boolean offerPacket(ClientTunnel ct, ByteString bytes, Runnable onSpace) {
+        if (!running) return true;
+        final Lane<RawPacket> lane = parseLanes[(System.identityHashCode(ct) & 0x7FFFFFFF) % parseLanes.length];
+        final RawPacket packet = new RawPacket(ct, bytes);
+        if (lane.queue.offer(packet)) return true;
+
+        lane.spaceWaiters.add(onSpace);
+        // The lane could have drained before the waiter was added, the waiter is then only run needlessly later
+        return lane.queue.offer(packet) || !running;
+    }
+
+    /**
+     * Waits for space in the queue, but gives up once the pipeline is closed, as nobody takes from its queues anymore
+     */
+    private <T> void offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (running) {
+            if (queue.offer(item, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) return;
+        }
+    }
+
+    private void parse(RawPacket packet) throws InterruptedException {
+        final ClientTunnel ct = packet.ct;
+        try {
+            final MessagesP.Message msg = MessagesP.Message.parseFrom(packet.bytes);
+            if (msg.getMessageType() == MessagesP.MessageType.NODE_MSG) {
+                final MessagesP.NodeMsg nodeToClientMsg = MessagesP.NodeMsg.parseFrom(msg.getMessage());
+
+                final String from = nodeToClientMsg.getSrc();
+                final MessagesP.EncryptedMessage pldMsg = MessagesP.EncryptedMessage.parseFrom(nodeToClientMsg.getPayload());
+
+                final ByteString prevSig = nodeToClientMsg.getPrevSignature();
+                if (prevSig != null && prevSig.size() != 0) {
+                    ct.onNodeMessageReceipt(prevSig);
+                }
+
+                // Multiclient prefixes of one peer share the lane, sessions are spread over them
+                final int laneHash = from.substring(from.lastIndexOf('.') + 1).hashCode();
+                offer(decryptLanes[(laneHash & 0x7FFFFFFF) % decryptLanes.length].queue, new ParsedPacket(ct, from, pldMsg));
+            } else {
+                LOG.warn("Received unsupported message type, ignoring ({})", msg.getMessageType());
+            }
+        } catch (InvalidProtocolBufferException e) {
+            LOG.warn("Got invalid binary message, ignoring", e);
+        }
+    }
+
+    private void decrypt(ParsedPacket packet) {
+        packet.ct.getAssociatedCM().onInboundMessage(packet.from, packet.message);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void start(int parseParallelism, int decryptParallelism) {
+        parseLanes = new Lane[Math.max(1, parseParallelism)];
+        for (int i = 0; i < parseLanes.length; i++) {
+            parseLanes[i] = new Lane<>("InboundParseWorker-" + myId + "-" + i, PARSE_QUEUE_SIZE, this::parse);
+        }
+        decryptLanes = new Lane[Math.max(1, decryptParallelism)];
+        for (int i = 0; i < decryptLanes.length; i++) {
+            decryptLanes[i] = new Lane<>("InboundDecryptWorker-" + myId + "-" + i, LANE_QUEUE_SIZE, this::decrypt);
+        }
+
+        running = true;
+        for (Lane<?> lane : parseLanes) lane.start();
+        for (Lane<?> lane : decryptLanes) lane.start();
+    }
+
+    void close() {
+        running = false;
+        if (parseLanes == null) return;
+        for (Lane<?> lane : parseLanes) lane.interrupt();
+        for (Lane<?> lane : decryptLanes) lane.interrupt();
+
+        try {
+            for (Lane<?> lane : parseLanes) lane.join();
+            for (Lane<?> lane : decryptLanes) lane.join();
+        } catch (InterruptedException ignored) {}
+
+        for (Lane<?> lane : parseLanes) lane.queue.clear();
+        for (Lane<?> lane : decryptLanes) lane.queue.clear();
+        // Refused packets are offered again and dropped
+        for (Lane<?> lane : parseLanes) lane.signalSpace();
+    }
+
+    private interface Stage<T> {
+        void process(T item) throws InterruptedException;
+    }
+
+    private class Lane<T> extends Thread {
+
+        private final BlockingQueue<T> queue;
+        private final int queueSize;
+        private final Stage<T> stage;
+        private final ConcurrentLinkedQueue<Runnable> spaceWaiters = new ConcurrentLinkedQueue<>();
+
+        Lane(String name, int queueSize, Stage<T> stage) {
+            super(name);
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.queueSize = queueSize;
+            this.stage = stage;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    final T item = queue.take();
+                    if (!spaceWaiters.isEmpty() && queue.remainingCapacity() >= queueSize / 2) signalSpace();
+                    stage.process(item);
+                } catch (InterruptedException ignored) {
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to process inbound packet", e);
+                }
+            }
+        }
+
+        private void signalSpace() {
+            Runnable waiter;
+            while ((waiter = spaceWaiters.poll()) != null) {
+                try {
+                    waiter.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to resume inbound packets", e);
+                }
+            }
+        }
+    }
+
+    private static class RawPacket {
+        private final ClientTunnel ct;
+        private final ByteString bytes;
+
+        RawPacket(ClientTunnel ct, ByteString bytes) {
+            this.ct = ct;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class ParsedPacket {
+        private final ClientTunnel ct;
+        private final String from;
+        private final MessagesP.EncryptedMessage message;
+
+        ParsedPacket(ClientTunnel ct, String from, MessagesP.EncryptedMessage message) {
+            this.ct = ct;
+            this.from = from;
+            this.message = message;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package jsmith.nknsdk.network;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+
+/**
+ * Compression applied to message payloads before they are encrypted. Codecs are identified by name in the
+ * sent payloads, so a receiver can decompress only messages of codecs registered in {@link PayloadCodecs}.
+ *
+ * Implementations must be thread safe.
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return name of the codec, sent with every compressed payload
+     */
+    String getName();
+
+    ByteString compress(ByteString data);
+
+    /**
+     * @param maxSize maximum allowed size of the decompressed data
+     * @throws IOException if the data are corrupted or decompress to more than maxSize bytes
+     */
+    ByteString decompress(ByteString data, int maxSize) throws IOException;
+
+}
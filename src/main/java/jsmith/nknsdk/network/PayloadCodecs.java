@@ -0,0 +1,178 @@
+package jsmith.nknsdk.network;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Registry of payload codecs known to this client. Deflate is always available, other codecs (e.g. LZ4 or Zstd bindings)
+ * can be registered by the application, and must be registered on both ends.
+ */
+public class PayloadCodecs {
+
+    /**
+     * Payloads with less bytes are sent uncompressed
+     */
+    public static final int COMPRESSION_THRESHOLD = 64;
+
+    /**
+     * Limit for decompressed simple messages, so that a small message cannot exhaust the memory
+     */
+    public static final int MAX_DECOMPRESSED_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    public static final PayloadCodec DEFLATE = new DeflateCodec(Deflater.BEST_SPEED);
+
+    private static final ConcurrentHashMap<String, PayloadCodec> codecs = new ConcurrentHashMap<>();
+    static {
+        register(DEFLATE);
+    }
+
+    private PayloadCodecs() {}
+
+    public static void register(PayloadCodec codec) {
+        if (codec.getName() == null || codec.getName().isEmpty()) throw new IllegalArgumentException("Codec name cannot be empty");
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * @return registered codec, or null if there is no codec of this name
+     */
+    public static PayloadCodec get(String name) {
+        return codecs.get(name);
+    }
+
+    /**
+     * @return compressed data, or null if the data are too short or did not get smaller
+     */
+    public static ByteString compressIfSmaller(PayloadCodec codec, ByteString data) {
+        if (codec == null || data.size() < COMPRESSION_THRESHOLD) return null;
+        final ByteString compressed = codec.compress(data);
+        return compressed.size() < data.size() ? compressed : null;
+    }
+
+
+    /**
+     * Raw deflate stream (RFC 1951), each payload compressed on its own
+     */
+    public static class DeflateCodec implements PayloadCodec {
+
+        private static final int MAX_CACHED_BUFFER = 64 * 1024;
+        private static final byte[] DUMMY_BYTE = new byte[1];
+
+        /**
+         * Maximum number of idle deflaters and inflaters kept, the others are ended right away to free their native memory
+         */
+        private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        private final int level;
+        private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooledDeflaters = new AtomicInteger(0);
+        private final AtomicInteger pooledInflaters = new AtomicInteger(0);
+        private final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[8192]);
+
+        public DeflateCodec(int level) {
+            this.level = level;
+        }
+
+        private Deflater acquireDeflater() {
+            final Deflater d = deflaters.poll();
+            if (d == null) return new Deflater(level, true);
+            pooledDeflaters.decrementAndGet();
+            return d;
+        }
+
+        private void releaseDeflater(Deflater d) {
+            if (pooledDeflaters.incrementAndGet() > MAX_POOLED) {
+                pooledDeflaters.decrementAndGet();
+                d.end();
+                return;
+            }
+            d.reset();
+            deflaters.add(d);
+        }
+
+        private Inflater acquireInflater() {
+            final Inflater i = inflaters.poll();
+            if (i == null) return new Inflater(true);
+            pooledInflaters.decrementAndGet();
+            return i;
+        }
+
+        private void releaseInflater(Inflater i) {
+            if (pooledInflaters.incrementAndGet() > MAX_POOLED) {
+                pooledInflaters.decrementAndGet();
+                i.end();
+                return;
+            }
+            i.reset();
+            inflaters.add(i);
+        }
+
+        @Override
+        public String getName() {
+            return "deflate";
+        }
+
+        @Override
+        public ByteString compress(ByteString data) {
+            final Deflater d = acquireDeflater();
+            byte[] out = buffer.get();
+            int size = 0;
+            try {
+                d.setInput(data.toByteArray());
+                d.finish();
+                while (!d.finished()) {
+                    if (size == out.length) out = Arrays.copyOf(out, out.length * 2);
+                    size += d.deflate(out, size, out.length - size);
+                }
+            } finally {
+                releaseDeflater(d);
+            }
+            if (out.length <= MAX_CACHED_BUFFER) buffer.set(out);
+            return ByteString.copyFrom(out, 0, size);
+        }
+
+        @Override
+        public ByteString decompress(ByteString data, int maxSize) throws IOException {
+            final Inflater i = acquireInflater();
+            byte[] out = buffer.get();
+            int size = 0;
+            boolean dummyFed = false;
+            // One byte over the limit is enough to tell the payload is too large
+            final int cap = (int) Math.min((long) maxSize + 1, Integer.MAX_VALUE);
+            try {
+                i.setInput(data.toByteArray());
+                while (!i.finished()) {
+                    if (size == out.length) out = Arrays.copyOf(out, (int) Math.min((long) out.length * 2, cap));
+                    final int inflated = i.inflate(out, size, Math.min(out.length, cap) - size);
+                    size += inflated;
+                    if (size > maxSize) {
+                        throw new IOException("Decompressed payload exceeds " + maxSize + " bytes");
+                    }
+                    if (inflated == 0 && i.needsInput() && !dummyFed) {
+                        // Inflater without zlib header may need one more byte to recognize the end of the stream
+                        i.setInput(DUMMY_BYTE);
+                        dummyFed = true;
+                    } else if (inflated == 0 && (i.needsInput() || i.needsDictionary())) {
+                        throw new IOException("Truncated compressed payload");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid compressed payload", e);
+            } finally {
+                releaseInflater(i);
+            }
+            if (out.length <= MAX_CACHED_BUFFER) buffer.set(out);
+            return ByteString.copyFrom(out, 0, size);
+        }
+    }
+
+}
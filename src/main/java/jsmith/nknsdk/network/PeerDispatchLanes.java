@@ -0,0 +1,142 @@
+package jsmith.nknsdk.network;
+
+import org.java_websocket.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of single threaded lanes with bounded mailboxes. Every peer is hashed onto one lane,
+ * so tasks of one peer run in submission order, while different peers run in parallel.
+ */
+public class PeerDispatchLanes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeerDispatchLanes.class);
+
+    /**
+     * How many oldest messages DROP_OLDEST discards at most to make room, before it drops the new one instead
+     */
+    public static final int DROP_OLDEST_ATTEMPTS = 8;
+
+    /**
+     * How long BLOCK waits for space in a full mailbox, before it drops the new message
+     */
+    public static final long BLOCK_TIMEOUT_MS = 1000;
+
+    private static int id = 0;
+
+    private final ThreadPoolExecutor[] lanes;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    public PeerDispatchLanes(int laneCount, int mailboxSize, OverflowPolicy overflowPolicy) {
+        if (laneCount < 1) throw new IllegalArgumentException("Lane count must be positive number");
+        if (mailboxSize < 1) throw new IllegalArgumentException("Mailbox size must be positive number");
+        if (overflowPolicy == null) throw new NullPointerException("Overflow policy cannot be null");
+
+        this.overflowPolicy = overflowPolicy;
+        final int myId = ++id;
+
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(mailboxSize),
+                    new NamedThreadFactory("PeerDispatchLane-" + myId + "-" + i),
+                    this::onOverflow);
+        }
+    }
+
+    /**
+     * @param peer full identifier of the peer, multiclient prefixes of one peer share its lane, same as in {@link InboundPipeline}
+     */
+    public void dispatch(String peer, Runnable task) {
+        final int laneHash = peer.substring(peer.lastIndexOf('.') + 1).hashCode();
+        lanes[(laneHash & 0x7FFFFFFF) % lanes.length].execute(task);
+    }
+
+    private void onOverflow(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                // The caller is an inbound decrypt lane shared with other peers, so the wait is bounded
+                try {
+                    if (!lane.getQueue().offer(task, BLOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        dropped.incrementAndGet();
+                        LOG.warn("Dispatch lane mailbox stayed full, dropping newest message");
+                    }
+                } catch (InterruptedException e) {
+                    dropped.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case DROP_NEWEST:
+                dropped.incrementAndGet();
+                LOG.warn("Dispatch lane mailbox is full, dropping newest message");
+                break;
+            case DROP_OLDEST:
+                final BlockingQueue<Runnable> queue = lane.getQueue();
+                for (int attempt = 0; attempt < DROP_OLDEST_ATTEMPTS; attempt++) {
+                    if (queue.poll() != null) dropped.incrementAndGet();
+                    if (queue.offer(task)) {
+                        LOG.warn("Dispatch lane mailbox is full, dropping oldest message");
+                        return;
+                    }
+                }
+                // Other producers keep refilling the mailbox
+                dropped.incrementAndGet();
+                LOG.warn("Dispatch lane mailbox is full, dropping newest message");
+                break;
+        }
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return number of messages waiting in mailbox of each lane
+     */
+    public int[] getLaneDepths() {
+        final int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueue().size();
+        }
+        return depths;
+    }
+
+    /**
+     * @return number of messages dropped because of full mailbox or closed lanes
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Already queued messages are still dispatched, new messages are dropped
+     */
+    public void close() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * BLOCK: Waits for space, which holds back the inbound decrypt lane of the client. Other peers hashed onto the same
+     * decrypt lane are stalled too, so dispatch lanes wait at most {@link #BLOCK_TIMEOUT_MS} and then drop the new message
+     * DROP_NEWEST: The new message is dropped
+     * DROP_OLDEST: The oldest waiting message is dropped to make room for the new one
+     */
+    public enum OverflowPolicy {
+
+        BLOCK,
+        DROP_NEWEST,
+        DROP_OLDEST
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package jsmith.nknsdk.network;
+
+import com.google.protobuf.ByteString;
+import jsmith.nknsdk.network.proto.MessagesP;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Signs and sends RECEIPT_MSG packets for received node messages, off the websocket read thread
+ */
+public class ReceiptWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReceiptWorker.class);
+
+    public static final int MAX_PENDING_RECEIPTS = 4096;
+    public static final int MAX_RECEIPT_BATCH = 64;
+
+    private final ClientTunnel ct;
+    private final BlockingQueue<ByteString> receiptQ = new ArrayBlockingQueue<>(MAX_PENDING_RECEIPTS);
+    private final Thread receiptThread;
+
+    private volatile boolean running = false;
+
+    ReceiptWorker(ClientTunnel ct, int myId) {
+        this.ct = ct;
+
+        receiptThread = new Thread("ReceiptWorker-" + myId) {
+            @Override
+            public void run() {
+                final ArrayList<ByteString> batch = new ArrayList<>(MAX_RECEIPT_BATCH);
+                while (running || !receiptQ.isEmpty()) {
+                    try {
+                        batch.add(receiptQ.take());
+                        receiptQ.drainTo(batch, MAX_RECEIPT_BATCH - 1);
+
+                        sendReceipts(batch);
+                    } catch (InterruptedException ignored) {
+                    } catch (RuntimeException e) {
+                        LOG.warn("Failed to send {} receipts", batch.size(), e);
+                    } finally {
+                        batch.clear();
+                    }
+                }
+            }
+        };
+        // Receipts are useless once the client is gone, close() still drains the queue
+        receiptThread.setDaemon(true);
+    }
+
+    /**
+     * Queues receipt for given signature. Never blocks, if the queue is full, the receipt is dropped
+     */
+    void onNodeMessage(ByteString prevSignature) {
+        if (!receiptQ.offer(prevSignature)) {
+            LOG.warn("Receipt queue is full, dropping receipt");
+        }
+    }
+
+    private void sendReceipts(ArrayList<ByteString> prevSignatures) {
+        // Sign everything first, so that the whole batch is handed to the websocket writer at once
+        final ByteString[] receipts = new ByteString[prevSignatures.size()];
+        for (int i = 0; i < receipts.length; i++) {
+            receipts[i] = MessagesP.Message.newBuilder()
+                    .setMessage(ClientEnc.generateNewReceipt(prevSignatures.get(i), ct))
+                    .setMessageType(MessagesP.MessageType.RECEIPT_MSG)
+                    .build().toByteString();
+        }
+
+        final WsApi ws = ct.ws;
+        try {
+            for (ByteString receipt : receipts) {
+                ws.sendPacket(receipt);
+            }
+        } catch (WebsocketNotConnectedException e) {
+            // Receipts belong to the connection the messages arrived on, there is no point in resending them elsewhere
+            LOG.debug("Websocket is not connected, dropping {} receipts", receipts.length);
+        }
+    }
+
+    void start() {
+        running = true;
+        receiptThread.start();
+    }
+
+    void close() {
+        running = false;
+        receiptThread.interrupt();
+
+        try {
+            receiptThread.join();
+        } catch (InterruptedException ignored) {}
+    }
+
+}
@@ -0,0 +1,28 @@
+package jsmith.nknsdk.network;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One call of a JSON-RPC batch sent by {@link HttpApi#rpcBatch(java.net.InetSocketAddress, java.util.List)}.
+ * The future is completed with the 'result' of the call, or exceptionally with
+ * {@link jsmith.nknsdk.client.NKNExplorerException} if the node returned an error for this call.
+ */
+public class RpcCall {
+
+    public final String method;
+    public final JSONObject params;
+    public final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    public RpcCall(String method, JSONObject params) {
+        this.method = method;
+        this.params = params;
+    }
+
+    public RpcCall(String method, Map<String, Object> params) {
+        this(method, new JSONObject(params));
+    }
+
+}
@@ -0,0 +1,34 @@
+package jsmith.nknsdk.network;
+
+/**
+ * Failure of the HTTP transport of a JSON-RPC call: the node could not be reached, didn't answer in time, or answered with an HTTP error
+ */
+public class RpcException extends RuntimeException {
+
+    private static final long serialVersionUID = -4305742719375516211L;
+
+    private final int httpStatus;
+
+    public RpcException(String message) {
+        super(message);
+        this.httpStatus = 0;
+    }
+
+    public RpcException(String message, int httpStatus) {
+        super(message);
+        this.httpStatus = httpStatus;
+    }
+
+    public RpcException(String message, Throwable cause) {
+        super(message, cause);
+        this.httpStatus = 0;
+    }
+
+    /**
+     * @return HTTP status of the response, or 0 if the call failed before a response was received
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+}
@@ -1,16 +1,30 @@
 package jsmith.nknsdk.network;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import jsmith.nknsdk.client.NKNClient;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.client.WebSocketSelectorGroup;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
 import org.java_websocket.handshake.ServerHandshake;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 /**
  *
@@ -22,10 +36,85 @@ public class WsApi extends WebSocketClient {
     private static int id = 0;
     private final int myId;
 
+    private static WebSocketSelectorGroup sharedSelectors = null;
+
+    /**
+     * Threads delivering messages of shared selector connections to their listeners, for each kind of message.
+     * Each connection is served by at most one of them at a time. Packet listeners never block a thread,
+     * a json listener may block (e.g. while reconnecting) and hold one thread for its connection meanwhile
+     */
+    public static final int DISPATCH_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService jsonDispatch = dispatchPool("WsJsonDispatch");
+    private static final ExecutorService packetDispatch = dispatchPool("WsPacketDispatch");
+
+    /**
+     * Packets of one connection waiting for its listener, above which the selector loop stops reading from the connection
+     */
+    public static final int MAX_PENDING_PACKETS = 256;
+    private static final int RESUME_PENDING_PACKETS = MAX_PENDING_PACKETS / 2;
+
+    private final ConcurrentLinkedQueue<String> jsonQ = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean jsonDispatching = new AtomicBoolean(false);
+
+    private final ConcurrentLinkedQueue<ByteString> packetQ = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingPackets = new AtomicInteger(0);
+    private final AtomicBoolean packetDispatching = new AtomicBoolean(false);
+    /**
+     * Incremented when the packet listener has space again, so a dispatch which was refused at the same time is repeated
+     */
+    private final AtomicInteger packetSpaceSignals = new AtomicInteger(0);
 
     public WsApi(InetSocketAddress address) {
-        super(URI.create("ws://" + address.getHostString() + ":" + address.getPort()));
+        this(address, NKNClient.WebsocketTransport.THREAD_PER_CONNECTION, defaultCompression());
+    }
+
+    /**
+     * @param compression permessage-deflate offered in the handshake, or null to not offer compression. Each connection uses its own copy
+     */
+    public WsApi(InetSocketAddress address, NKNClient.WebsocketTransport transport, PerMessageDeflateExtension compression) {
+        super(URI.create("ws://" + address.getHostString() + ":" + address.getPort()), compression == null ? new Draft_6455() : new Draft_6455(compression));
         myId = ++id;
+
+        if (transport == NKNClient.WebsocketTransport.SHARED_SELECTOR) {
+            setSelectorLoop(sharedSelectors().next());
+        }
+    }
+
+    private static ExecutorService dispatchPool(String name) {
+        final AtomicInteger threadId = new AtomicInteger(0);
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread(r, name + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Compresses json messages, binary packets carry signed and mostly encrypted payloads, which don't deflate well.
+     * Json messages are short, the fastest level compresses them nearly as well as the default one at half the time
+     */
+    public static PerMessageDeflateExtension defaultCompression() {
+        final PerMessageDeflateExtension compression = new PerMessageDeflateExtension();
+        compression.setCompressBinaryFrames(false);
+        compression.setCompressionLevel(Deflater.BEST_SPEED);
+        return compression;
+    }
+
+    /**
+     * Selector loops shared by all clients using the SHARED_SELECTOR transport, one per processor core
+     */
+    static synchronized WebSocketSelectorGroup sharedSelectors() {
+        if (sharedSelectors == null) {
+            try {
+                sharedSelectors = new WebSocketSelectorGroup("WsSelectorLoop", Runtime.getRuntime().availableProcessors());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open selector", e);
+            }
+        }
+        return sharedSelectors;
     }
 
     @Override
@@ -44,17 +133,116 @@ public class WsApi extends WebSocketClient {
 
     public void onMessage(String message) {
         if (jsonMessageListener != null) {
-            final JSONObject messageJson = new JSONObject(message);
-            jsonMessageListener.accept(messageJson);
+            if (getSelectorLoop() == null) {
+                final JSONObject messageJson = new JSONObject(message);
+                jsonMessageListener.accept(messageJson);
+            } else {
+                // Json handlers may block (e.g. while reconnecting), which must not stall the shared selector loop
+                jsonQ.add(message);
+                dispatchJson();
+            }
         }
     }
 
+    private void dispatchJson() {
+        if (!jsonDispatching.compareAndSet(false, true)) return;
+        jsonDispatch.submit(() -> {
+            String message;
+            while ((message = jsonQ.poll()) != null) {
+                try {
+                    jsonMessageListener.accept(new JSONObject(message));
+                } catch (RuntimeException e) {
+                    LOG.warn("WS#{} Failed to handle json message", myId, e);
+                }
+            }
+            jsonDispatching.set(false);
+            if (!jsonQ.isEmpty()) dispatchJson();
+        });
+    }
+
     public void onMessage(ByteBuffer bytes) {
         if (protobufMessageListener != null) {
-            protobufMessageListener.accept(ByteString.copyFrom(bytes));
+            onPacket(ByteString.copyFrom(bytes));
         }
     }
 
+    @Override
+    public boolean onMessageOwned(ByteBuffer bytes) {
+        if (protobufMessageListener != null) {
+            // The decoded frame is kept by us, so it can be wrapped instead of copied
+            onPacket(UnsafeByteOperations.unsafeWrap(bytes));
+            return true;
+        }
+        return false;
+    }
+
+    private void onPacket(ByteString packet) {
+        if (getSelectorLoop() == null) {
+            // Own read thread of the connection, so it simply waits until the listener has space
+            while (!protobufMessageListener.offer(packet, this::onPacketSpace)) {
+                synchronized (packetQ) {
+                    try {
+                        packetQ.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            return;
+        }
+
+        // The shared selector loop and dispatch threads must never wait for inbound processing of one client.
+        // Packets the listener refuses stay queued and reading from this connection is paused until they are handed over
+        packetQ.add(packet);
+        if (pendingPackets.incrementAndGet() >= MAX_PENDING_PACKETS && pauseReading()) {
+            LOG.debug("WS#{} Inbound processing is behind, pausing reading", myId);
+            // The dispatcher could have drained the queue before reading was paused
+            if (pendingPackets.get() <= RESUME_PENDING_PACKETS) resumeReading();
+        }
+        dispatchPackets();
+    }
+
+    /**
+     * Called by the packet listener when it can take packets again, after it refused one
+     */
+    private void onPacketSpace() {
+        if (getSelectorLoop() == null) {
+            synchronized (packetQ) {
+                packetQ.notifyAll();
+            }
+            return;
+        }
+        packetSpaceSignals.incrementAndGet();
+        dispatchPackets();
+    }
+
+    private void dispatchPackets() {
+        if (!packetDispatching.compareAndSet(false, true)) return;
+        packetDispatch.submit(() -> {
+            final int spaceSignal = packetSpaceSignals.get();
+            boolean refused = false;
+            ByteString packet;
+            while ((packet = packetQ.peek()) != null) {
+                try {
+                    if (!protobufMessageListener.offer(packet, this::onPacketSpace)) {
+                        refused = true;
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    LOG.warn("WS#{} Failed to handle packet", myId, e);
+                }
+                packetQ.poll();
+                if (pendingPackets.decrementAndGet() <= RESUME_PENDING_PACKETS && resumeReading()) {
+                    LOG.debug("WS#{} Inbound processing caught up, resuming reading", myId);
+                }
+            }
+            packetDispatching.set(false);
+            // A refused packet waits for onPacketSpace, unless the listener got space while it was being refused
+            if (!packetQ.isEmpty() && (!refused || packetSpaceSignals.get() != spaceSignal)) dispatchPackets();
+        });
+    }
+
 
 
     @Override
@@ -81,10 +269,20 @@ public class WsApi extends WebSocketClient {
     public void setJsonMessageListener(Consumer<JSONObject> listener) {
         this.jsonMessageListener = listener;
     }
-    private Consumer<ByteString> protobufMessageListener;
-    public void setProtobufMessageListener(Consumer<ByteString> listener) {
+    private PacketListener protobufMessageListener;
+    public void setProtobufMessageListener(PacketListener listener) {
         this.protobufMessageListener = listener;
     }
+
+    public interface PacketListener {
+        /**
+         * Must not block, a packet which can't be taken now is refused and offered again once onSpace has been run
+         *
+         * @param onSpace to be run once after the packet has been refused, when the listener may have space again
+         * @return false if the packet was refused
+         */
+        boolean offer(ByteString packet, Runnable onSpace);
+    }
     private Runnable openListener;
     private Consumer<String> closeListener;
     public void setCLoseListener(Consumer<String> listener) {
@@ -95,7 +293,8 @@ public class WsApi extends WebSocketClient {
     }
 
     public void sendPacket(ByteString bin) {
-        send(ByteBuffer.wrap(bin.toByteArray()));
+        // Read-only view of the ByteString, the only copy is made when the frame is masked
+        send(bin.asReadOnlyByteBuffer());
     }
 
     public void sendPacket(JSONObject json) {
@@ -878,6 +878,16 @@ public final class MessagesP {
      * <code>bool no_ack = 5;</code>
      */
     boolean getNoAck();
+
+    /**
+     * <code>string compression = 6;</code>
+     */
+    java.lang.String getCompression();
+    /**
+     * <code>string compression = 6;</code>
+     */
+    com.google.protobuf.ByteString
+        getCompressionBytes();
   }
   /**
    * Protobuf type {@code jsmith.nknsdk.network.proto.Payload}
@@ -897,6 +907,7 @@ public final class MessagesP {
       data_ = com.google.protobuf.ByteString.EMPTY;
       replyToPid_ = com.google.protobuf.ByteString.EMPTY;
       noAck_ = false;
+      compression_ = "";
     }
 
     @java.lang.Override
@@ -949,6 +960,12 @@ public final class MessagesP {
               noAck_ = input.readBool();
               break;
             }
+            case 50: {
+              java.lang.String s = input.readStringRequireUtf8();
+
+              compression_ = s;
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -1034,6 +1051,40 @@ public final class MessagesP {
       return noAck_;
     }
 
+    public static final int COMPRESSION_FIELD_NUMBER = 6;
+    private volatile java.lang.Object compression_;
+    /**
+     * <code>string compression = 6;</code>
+     */
+    public java.lang.String getCompression() {
+      java.lang.Object ref = compression_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        compression_ = s;
+        return s;
+      }
+    }
+    /**
+     * <code>string compression = 6;</code>
+     */
+    public com.google.protobuf.ByteString
+        getCompressionBytes() {
+      java.lang.Object ref = compression_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        compression_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -1063,6 +1114,9 @@ public final class MessagesP {
       if (noAck_ != false) {
         output.writeBool(5, noAck_);
       }
+      if (!getCompressionBytes().isEmpty()) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 6, compression_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -1092,6 +1146,9 @@ public final class MessagesP {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(5, noAck_);
       }
+      if (!getCompressionBytes().isEmpty()) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(6, compression_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -1117,6 +1174,8 @@ public final class MessagesP {
           .equals(other.getReplyToPid());
       result = result && (getNoAck()
           == other.getNoAck());
+      result = result && getCompression()
+          .equals(other.getCompression());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -1139,6 +1198,8 @@ public final class MessagesP {
       hash = (37 * hash) + NO_ACK_FIELD_NUMBER;
       hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
           getNoAck());
+      hash = (37 * hash) + COMPRESSION_FIELD_NUMBER;
+      hash = (53 * hash) + getCompression().hashCode();
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -1282,6 +1343,8 @@ public final class MessagesP {
 
         noAck_ = false;
 
+        compression_ = "";
+
         return this;
       }
 
@@ -1313,6 +1376,7 @@ public final class MessagesP {
         result.data_ = data_;
         result.replyToPid_ = replyToPid_;
         result.noAck_ = noAck_;
+        result.compression_ = compression_;
         onBuilt();
         return result;
       }
@@ -1376,6 +1440,10 @@ public final class MessagesP {
         if (other.getNoAck() != false) {
           setNoAck(other.getNoAck());
         }
+        if (!other.getCompression().isEmpty()) {
+          compression_ = other.compression_;
+          onChanged();
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -1562,6 +1630,75 @@ public final class MessagesP {
         onChanged();
         return this;
       }
+
+      private java.lang.Object compression_ = "";
+      /**
+       * <code>string compression = 6;</code>
+       */
+      public java.lang.String getCompression() {
+        java.lang.Object ref = compression_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          compression_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>string compression = 6;</code>
+       */
+      public com.google.protobuf.ByteString
+          getCompressionBytes() {
+        java.lang.Object ref = compression_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          compression_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>string compression = 6;</code>
+       */
+      public Builder setCompression(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  
+        compression_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>string compression = 6;</code>
+       */
+      public Builder clearCompression() {
+        
+        compression_ = getDefaultInstance().getCompression();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>string compression = 6;</code>
+       */
+      public Builder setCompressionBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  checkByteStringIsUtf8(value);
+        
+        compression_ = value;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -2248,6 +2385,30 @@ public final class MessagesP {
      * <code>bool handshake = 10;</code>
      */
     boolean getHandshake();
+
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    java.util.List<java.lang.String>
+        getCompressionCodecsList();
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    int getCompressionCodecsCount();
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    java.lang.String getCompressionCodecs(int index);
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    com.google.protobuf.ByteString
+        getCompressionCodecsBytes(int index);
+
+    /**
+     * <code>bool compressed = 12;</code>
+     */
+    boolean getCompressed();
   }
   /**
    * Protobuf type {@code jsmith.nknsdk.network.proto.SessionData}
@@ -2272,6 +2433,8 @@ public final class MessagesP {
       mtu_ = 0;
       close_ = false;
       handshake_ = false;
+      compressionCodecs_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      compressed_ = false;
     }
 
     @java.lang.Override
@@ -2384,6 +2547,20 @@ public final class MessagesP {
               handshake_ = input.readBool();
               break;
             }
+            case 90: {
+              java.lang.String s = input.readStringRequireUtf8();
+              if (!((mutable_bitField0_ & 0x00000400) == 0x00000400)) {
+                compressionCodecs_ = new com.google.protobuf.LazyStringArrayList();
+                mutable_bitField0_ |= 0x00000400;
+              }
+              compressionCodecs_.add(s);
+              break;
+            }
+            case 96: {
+
+              compressed_ = input.readBool();
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -2408,6 +2585,9 @@ public final class MessagesP {
         if (((mutable_bitField0_ & 0x00000020) == 0x00000020)) {
           clientIds_ = clientIds_.getUnmodifiableView();
         }
+        if (((mutable_bitField0_ & 0x00000400) == 0x00000400)) {
+          compressionCodecs_ = compressionCodecs_.getUnmodifiableView();
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
@@ -2564,6 +2744,44 @@ public final class MessagesP {
       return handshake_;
     }
 
+    public static final int COMPRESSION_CODECS_FIELD_NUMBER = 11;
+    private com.google.protobuf.LazyStringList compressionCodecs_;
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    public com.google.protobuf.ProtocolStringList
+        getCompressionCodecsList() {
+      return compressionCodecs_;
+    }
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    public int getCompressionCodecsCount() {
+      return compressionCodecs_.size();
+    }
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    public java.lang.String getCompressionCodecs(int index) {
+      return compressionCodecs_.get(index);
+    }
+    /**
+     * <code>repeated string compression_codecs = 11;</code>
+     */
+    public com.google.protobuf.ByteString
+        getCompressionCodecsBytes(int index) {
+      return compressionCodecs_.getByteString(index);
+    }
+
+    public static final int COMPRESSED_FIELD_NUMBER = 12;
+    private boolean compressed_;
+    /**
+     * <code>bool compressed = 12;</code>
+     */
+    public boolean getCompressed() {
+      return compressed_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -2617,6 +2835,12 @@ public final class MessagesP {
       if (handshake_ != false) {
         output.writeBool(10, handshake_);
       }
+      for (int i = 0; i < compressionCodecs_.size(); i++) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 11, compressionCodecs_.getRaw(i));
+      }
+      if (compressed_ != false) {
+        output.writeBool(12, compressed_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -2690,6 +2914,18 @@ public final class MessagesP {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(10, handshake_);
       }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < compressionCodecs_.size(); i++) {
+          dataSize += computeStringSizeNoTag(compressionCodecs_.getRaw(i));
+        }
+        size += dataSize;
+        size += 1 * getCompressionCodecsList().size();
+      }
+      if (compressed_ != false) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(12, compressed_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -2726,6 +2962,10 @@ public final class MessagesP {
           == other.getClose());
       result = result && (getHandshake()
           == other.getHandshake());
+      result = result && getCompressionCodecsList()
+          .equals(other.getCompressionCodecsList());
+      result = result && (getCompressed()
+          == other.getCompressed());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -2766,6 +3006,13 @@ public final class MessagesP {
       hash = (37 * hash) + HANDSHAKE_FIELD_NUMBER;
       hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
           getHandshake());
+      if (getCompressionCodecsCount() > 0) {
+        hash = (37 * hash) + COMPRESSION_CODECS_FIELD_NUMBER;
+        hash = (53 * hash) + getCompressionCodecsList().hashCode();
+      }
+      hash = (37 * hash) + COMPRESSED_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+          getCompressed());
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -2919,6 +3166,10 @@ public final class MessagesP {
 
         handshake_ = false;
 
+        compressionCodecs_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000400);
+        compressed_ = false;
+
         return this;
       }
 
@@ -2969,6 +3220,12 @@ public final class MessagesP {
         result.mtu_ = mtu_;
         result.close_ = close_;
         result.handshake_ = handshake_;
+        if (((bitField0_ & 0x00000400) == 0x00000400)) {
+          compressionCodecs_ = compressionCodecs_.getUnmodifiableView();
+          bitField0_ = (bitField0_ & ~0x00000400);
+        }
+        result.compressionCodecs_ = compressionCodecs_;
+        result.compressed_ = compressed_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -3069,6 +3326,19 @@ public final class MessagesP {
         if (other.getHandshake() != false) {
           setHandshake(other.getHandshake());
         }
+        if (!other.compressionCodecs_.isEmpty()) {
+          if (compressionCodecs_.isEmpty()) {
+            compressionCodecs_ = other.compressionCodecs_;
+            bitField0_ = (bitField0_ & ~0x00000400);
+          } else {
+            ensureCompressionCodecsIsMutable();
+            compressionCodecs_.addAll(other.compressionCodecs_);
+          }
+          onChanged();
+        }
+        if (other.getCompressed() != false) {
+          setCompressed(other.getCompressed());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -3509,6 +3779,126 @@ public final class MessagesP {
         onChanged();
         return this;
       }
+
+      private com.google.protobuf.LazyStringList compressionCodecs_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      private void ensureCompressionCodecsIsMutable() {
+        if (!((bitField0_ & 0x00000400) == 0x00000400)) {
+          compressionCodecs_ = new com.google.protobuf.LazyStringArrayList(compressionCodecs_);
+          bitField0_ |= 0x00000400;
+         }
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public com.google.protobuf.ProtocolStringList
+          getCompressionCodecsList() {
+        return compressionCodecs_.getUnmodifiableView();
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public int getCompressionCodecsCount() {
+        return compressionCodecs_.size();
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public java.lang.String getCompressionCodecs(int index) {
+        return compressionCodecs_.get(index);
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public com.google.protobuf.ByteString
+          getCompressionCodecsBytes(int index) {
+        return compressionCodecs_.getByteString(index);
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public Builder setCompressionCodecs(
+          int index, java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureCompressionCodecsIsMutable();
+        compressionCodecs_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public Builder addCompressionCodecs(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureCompressionCodecsIsMutable();
+        compressionCodecs_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public Builder addAllCompressionCodecs(
+          java.lang.Iterable<java.lang.String> values) {
+        ensureCompressionCodecsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, compressionCodecs_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public Builder clearCompressionCodecs() {
+        compressionCodecs_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000400);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string compression_codecs = 11;</code>
+       */
+      public Builder addCompressionCodecsBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  checkByteStringIsUtf8(value);
+        ensureCompressionCodecsIsMutable();
+        compressionCodecs_.add(value);
+        onChanged();
+        return this;
+      }
+
+      private boolean compressed_ ;
+      /**
+       * <code>bool compressed = 12;</code>
+       */
+      public boolean getCompressed() {
+        return compressed_;
+      }
+      /**
+       * <code>bool compressed = 12;</code>
+       */
+      public Builder setCompressed(boolean value) {
+        
+        compressed_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>bool compressed = 12;</code>
+       */
+      public Builder clearCompressed() {
+        
+        compressed_ = false;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -6570,28 +6960,30 @@ public final class MessagesP {
       "\n+jsmith/nknsdk/network/proto/messagesP." +
       "proto\022\033jsmith.nknsdk.network.proto\"E\n\020En" +
       "cryptedMessage\022\017\n\007payload\030\001 \001(\014\022\021\n\tencry" +
-      "pted\030\002 \001(\010\022\r\n\005nonce\030\003 \001(\014\"\202\001\n\007Payload\0226\n" +
+      "pted\030\002 \001(\010\022\r\n\005nonce\030\003 \001(\014\"\227\001\n\007Payload\0226\n" +
       "\004type\030\001 \001(\0162(.jsmith.nknsdk.network.prot" +
       "o.PayloadType\022\013\n\003pid\030\002 \001(\014\022\014\n\004data\030\003 \001(\014" +
-      "\022\024\n\014reply_to_pid\030\004 \001(\014\022\016\n\006no_ack\030\005 \001(\010\"\030" +
-      "\n\010TextData\022\014\n\004text\030\001 \001(\t\"\312\001\n\013SessionData" +
-      "\022\023\n\013sequence_id\030\001 \001(\r\022\014\n\004data\030\002 \001(\014\022\025\n\ra" +
-      "ck_start_seq\030\003 \003(\r\022\025\n\rack_seq_count\030\004 \003(" +
-      "\r\022\022\n\nbytes_read\030\005 \001(\004\022\022\n\nclient_ids\030\006 \003(" +
-      "\t\022\023\n\013window_size\030\007 \001(\r\022\013\n\003mtu\030\010 \001(\r\022\r\n\005c" +
-      "lose\030\t \001(\010\022\021\n\thandshake\030\n \001(\010\"Z\n\007Message" +
-      "\022>\n\014message_type\030\001 \001(\0162(.jsmith.nknsdk.n" +
-      "etwork.proto.MessageType\022\017\n\007message\030\002 \001(" +
-      "\014\"\215\001\n\tClientMsg\022\014\n\004dest\030\001 \001(\t\022\017\n\007payload" +
-      "\030\002 \001(\014\022\r\n\005dests\030\003 \003(\t\022\033\n\023max_holding_sec" +
-      "onds\030\004 \001(\r\022\r\n\005nonce\030\005 \001(\r\022\022\n\nblock_hash\030" +
-      "\006 \001(\014\022\022\n\nsignatures\030\007 \003(\014\"?\n\007NodeMsg\022\013\n\003" +
-      "src\030\001 \001(\t\022\017\n\007payload\030\002 \001(\014\022\026\n\016prev_signa" +
-      "ture\030\003 \001(\014\"7\n\nReceiptMsg\022\026\n\016prev_signatu" +
-      "re\030\001 \001(\014\022\021\n\tsignature\030\002 \001(\014*9\n\013PayloadTy" +
-      "pe\022\n\n\006BINARY\020\000\022\010\n\004TEXT\020\001\022\007\n\003ACK\020\002\022\013\n\007SES" +
-      "SION\020\003*<\n\013MessageType\022\016\n\nCLIENT_MSG\020\000\022\014\n" +
-      "\010NODE_MSG\020\001\022\017\n\013RECEIPT_MSG\020\002b\006proto3"
+      "\022\024\n\014reply_to_pid\030\004 \001(\014\022\016\n\006no_ack\030\005 \001(\010\022\023" +
+      "\n\013compression\030\006 \001(\t\"\030\n\010TextData\022\014\n\004text\030" +
+      "\001 \001(\t\"\372\001\n\013SessionData\022\023\n\013sequence_id\030\001 \001" +
+      "(\r\022\014\n\004data\030\002 \001(\014\022\025\n\rack_start_seq\030\003 \003(\r\022" +
+      "\025\n\rack_seq_count\030\004 \003(\r\022\022\n\nbytes_read\030\005 \001" +
+      "(\004\022\022\n\nclient_ids\030\006 \003(\t\022\023\n\013window_size\030\007 " +
+      "\001(\r\022\013\n\003mtu\030\010 \001(\r\022\r\n\005close\030\t \001(\010\022\021\n\thands" +
+      "hake\030\n \001(\010\022\032\n\022compression_codecs\030\013 \003(\t\022\022" +
+      "\n\ncompressed\030\014 \001(\010\"Z\n\007Message\022>\n\014message" +
+      "_type\030\001 \001(\0162(.jsmith.nknsdk.network.prot" +
+      "o.MessageType\022\017\n\007message\030\002 \001(\014\"\215\001\n\tClien" +
+      "tMsg\022\014\n\004dest\030\001 \001(\t\022\017\n\007payload\030\002 \001(\014\022\r\n\005d" +
+      "ests\030\003 \003(\t\022\033\n\023max_holding_seconds\030\004 \001(\r\022" +
+      "\r\n\005nonce\030\005 \001(\r\022\022\n\nblock_hash\030\006 \001(\014\022\022\n\nsi" +
+      "gnatures\030\007 \003(\014\"?\n\007NodeMsg\022\013\n\003src\030\001 \001(\t\022\017" +
+      "\n\007payload\030\002 \001(\014\022\026\n\016prev_signature\030\003 \001(\014\"" +
+      "7\n\nReceiptMsg\022\026\n\016prev_signature\030\001 \001(\014\022\021\n" +
+      "\tsignature\030\002 \001(\014*9\n\013PayloadType\022\n\n\006BINAR" +
+      "Y\020\000\022\010\n\004TEXT\020\001\022\007\n\003ACK\020\002\022\013\n\007SESSION\020\003*<\n\013M" +
+      "essageType\022\016\n\nCLIENT_MSG\020\000\022\014\n\010NODE_MSG\020\001" +
+      "\022\017\n\013RECEIPT_MSG\020\002b\006proto3"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -6616,7 +7008,7 @@ public final class MessagesP {
     internal_static_jsmith_nknsdk_network_proto_Payload_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_jsmith_nknsdk_network_proto_Payload_descriptor,
-        new java.lang.String[] { "Type", "Pid", "Data", "ReplyToPid", "NoAck", });
+        new java.lang.String[] { "Type", "Pid", "Data", "ReplyToPid", "NoAck", "Compression", });
     internal_static_jsmith_nknsdk_network_proto_TextData_descriptor =
       getDescriptor().getMessageTypes().get(2);
     internal_static_jsmith_nknsdk_network_proto_TextData_fieldAccessorTable = new
@@ -6628,7 +7020,7 @@ public final class MessagesP {
     internal_static_jsmith_nknsdk_network_proto_SessionData_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_jsmith_nknsdk_network_proto_SessionData_descriptor,
-        new java.lang.String[] { "SequenceId", "Data", "AckStartSeq", "AckSeqCount", "BytesRead", "ClientIds", "WindowSize", "Mtu", "Close", "Handshake", });
+        new java.lang.String[] { "SequenceId", "Data", "AckStartSeq", "AckSeqCount", "BytesRead", "ClientIds", "WindowSize", "Mtu", "Close", "Handshake", "CompressionCodecs", "Compressed", });
     internal_static_jsmith_nknsdk_network_proto_Message_descriptor =
       getDescriptor().getMessageTypes().get(4);
     internal_static_jsmith_nknsdk_network_proto_Message_fieldAccessorTable = new
@@ -2,6 +2,7 @@ package jsmith.nknsdk.network.session;
 
 import com.google.protobuf.ByteString;
 import jsmith.nknsdk.network.ClientMessageWorker;
+import jsmith.nknsdk.network.PayloadCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,7 @@ public class Session {
     List<String> prefixes;
     int ownMulticlients;
     int mtu, winSize;
+    PayloadCodec codec = null;
 
     final Object lock = new Object();
 
@@ -94,6 +96,13 @@ public class Session {
         }
     }
 
+    /**
+     * @return codec compressing the data chunks, which was agreed on in the handshake, or null if the data are not compressed
+     */
+    public PayloadCodec getCompression() {
+        return codec;
+    }
+
     public SessionInputStream getInputStream() {
         if (!isEstablished || isClosed) throw new IllegalStateException("The session is not active, cannot return stream");
         return is;
@@ -6,11 +6,14 @@ import jsmith.nknsdk.client.NKNClientException;
 import jsmith.nknsdk.network.ClientMessageWorker;
 import jsmith.nknsdk.network.ClientTunnel;
 import jsmith.nknsdk.network.ConnectionProvider;
+import jsmith.nknsdk.network.PayloadCodec;
+import jsmith.nknsdk.network.PayloadCodecs;
 import jsmith.nknsdk.network.proto.MessagesP;
 import jsmith.nknsdk.utils.Crypto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -57,7 +60,11 @@ public class SessionHandler extends Thread {
         final Session s = new Session(this, prefixes, multiclients, destinationFullIdentifier, ByteString.copyFrom(Crypto.nextRandom8B()), maxMtu, maxWindowSize);
         activeSessions.put(new SessionKey(destinationFullIdentifier, s.sessionId), s);
         LOG.info("Dialing session");
-        establishSession(s);
+        final ArrayList<String> offeredCodecs = new ArrayList<>();
+        for (PayloadCodec codec : compressionCodecs) {
+            offeredCodecs.add(codec.getName());
+        }
+        establishSession(s, offeredCodecs);
         return s;
     }
 
@@ -83,6 +90,18 @@ public class SessionHandler extends Thread {
         this.preferredWinSize = preferredWinSize;
     }
 
+    private volatile List<PayloadCodec> compressionCodecs = Collections.emptyList();
+    /**
+     * Codecs offered for compression of the data of dialed sessions, in order of preference. Incoming sessions
+     * are compressed with the first offered codec registered in {@link PayloadCodecs}
+     */
+    public void setCompressionCodecs(List<PayloadCodec> codecs) {
+        for (PayloadCodec codec : codecs) {
+            PayloadCodecs.register(codec);
+        }
+        this.compressionCodecs = new ArrayList<>(codecs);
+    }
+
     public void onMessage(ClientMessageWorker cmw, String fromRaw, ByteString sessionId, ByteString bytes) {
         String prefix = fromRaw.contains(".") ? fromRaw.substring(0, fromRaw.indexOf(".")) : "";
         String from = fromRaw;
@@ -118,6 +137,13 @@ public class SessionHandler extends Thread {
                                     ct.multiclients.get(i).getAssociatedCM().trackWinSize(s.remoteIdentifier, ClientMessageWorker.DEFAULT_INITIAL_CONNECTION_WINSIZE);
                                 }
 
+                                if (data.getCompressionCodecsCount() > 0) {
+                                    final String answered = data.getCompressionCodecs(0);
+                                    for (PayloadCodec codec : compressionCodecs) {
+                                        if (codec.getName().equals(answered)) s.codec = codec;
+                                    }
+                                }
+
                                 final int mtu = data.getMtu();
                                 final int winSize = data.getWindowSize();
                                 s.establishSession(
@@ -145,7 +171,12 @@ public class SessionHandler extends Thread {
                         final long bytesRead = data.getBytesRead();
 
                         if (sequenceId != 0) {
-                            s.onReceivedChunk(sequenceId, data.getData(), cmw);
+                            ByteString chunk = data.getData();
+                            if (data.getCompressed()) {
+                                if (s.codec == null) throw new IOException("Compressed data chunk received, but no compression was agreed on");
+                                chunk = s.codec.decompress(chunk, s.mtu);
+                            }
+                            s.onReceivedChunk(sequenceId, chunk, cmw);
                         }
                         if (ackSeqLength > 0) {
                             for (int i = 0; i < ackSeqLength; i++) {
@@ -179,6 +210,10 @@ public class SessionHandler extends Thread {
 
                         s = new Session(this, data.getClientIdsList(), Math.min(preferredMulticlients, data.getClientIdsCount()), from, sessionId, Math.min(mtu, preferredMtu), Math.min(preferredWinSize, winSize));
                         s.lastReceivedPacket = System.currentTimeMillis();
+                        for (String offered : data.getCompressionCodecsList()) {
+                            s.codec = PayloadCodecs.get(offered);
+                            if (s.codec != null) break;
+                        }
 
                         synchronized (s.lock) {
 
@@ -195,7 +230,7 @@ public class SessionHandler extends Thread {
                                     ct.multiclients.get(i).getAssociatedCM().trackWinSize(s.remoteIdentifier, ClientMessageWorker.DEFAULT_INITIAL_CONNECTION_WINSIZE);
                                 }
 
-                                establishSession(s);
+                                establishSession(s, s.codec == null ? Collections.emptyList() : Collections.singletonList(s.codec.getName()));
                                 s.establishSession(s.prefixes, s.mtu, Math.min(Math.min(MAX_MULTICLIENTS, preferredMulticlients), s.ownMulticlients), s.winSize);
                                 LOG.info("Reply sent with session establishment confirmation");
                                 if (s.onSessionEstablishedCb != null) {
@@ -212,7 +247,7 @@ public class SessionHandler extends Thread {
                 }
 
             }
-        } catch (InvalidProtocolBufferException e) {
+        } catch (IOException e) {
             LOG.warn("Invalid session packet received", e);
         }
     }
@@ -359,7 +394,14 @@ public class SessionHandler extends Thread {
 
         if (dataChunk != null) {
             packetBuilder.setSequenceId(dataChunk.sequenceId);
-            packetBuilder.setData(dataChunk.data);
+            // Chunks are compressed one by one, so that each can be resent and decompressed on its own
+            final ByteString compressed = PayloadCodecs.compressIfSmaller(s.codec, dataChunk.data);
+            if (compressed != null) {
+                packetBuilder.setData(compressed);
+                packetBuilder.setCompressed(true);
+            } else {
+                packetBuilder.setData(dataChunk.data);
+            }
         }
 
         boolean nonEmptyAck = false;
@@ -419,7 +461,7 @@ public class SessionHandler extends Thread {
         }
     }
 
-    private void establishSession(Session s) {
+    private void establishSession(Session s, List<String> compressionCodecs) {
         if (s.isClosed || s.isClosing || s.isEstablished) return;
 
         final ArrayList<String> myPrefixes = new ArrayList<>(s.ownMulticlients);
@@ -433,6 +475,7 @@ public class SessionHandler extends Thread {
                 .addAllClientIds(myPrefixes)
                 .setMtu(s.mtu)
                 .setWindowSize(s.winSize)
+                .addAllCompressionCodecs(compressionCodecs)
                 .setClose(false)
                 .build();
 
@@ -1,8 +1,12 @@
 package jsmith.nknsdk.utils;
 
+import java.util.Arrays;
+
 /*
-* Created by vrotaru: https://gist.github.com/vrotaru
+* Originally created by vrotaru: https://gist.github.com/vrotaru
 * https://gist.github.com/vrotaru/1753908
+*
+* Converts in 32-bit limbs, five Base58 digits at a time
 */
 
 public class Base58 {
@@ -10,7 +14,6 @@ public class Base58 {
     private static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz"
             .toCharArray();
     private static final int BASE_58 = ALPHABET.length;
-    private static final int BASE_256 = 256;
 
     private static final int[] INDEXES = new int[128];
     static {
@@ -22,7 +25,14 @@ public class Base58 {
         }
     }
 
+    /**
+     * 58^5 is the largest power of 58 below 2^30, so a limb multiplied by it (plus carry) still fits into long
+     */
+    private static final int LIMB_DIGITS = 5;
+    private static final long[] POW_58 = { 1L, 58L, 58L * 58, 58L * 58 * 58, 58L * 58 * 58 * 58, 58L * 58 * 58 * 58 * 58 };
+    private static final long LIMB_BASE_58 = POW_58[LIMB_DIGITS];
 
+    private static final long UINT_MASK = 0xFFFFFFFFL;
 
     public static String encode(byte[] input) {
         if (input.length == 0) {
@@ -30,143 +40,172 @@ public class Base58 {
             return "";
         }
 
-        //
-        // Make a copy of the input since we are going to modify it.
-        //
-        input = copyOfRange(input, 0, input.length);
-
-        //
-        // Count leading zeroes
-        //
         int zeroCount = 0;
         while (zeroCount < input.length && input[zeroCount] == 0) {
             ++zeroCount;
         }
 
         //
-        // The actual encoding
+        // Big-endian 32-bit limbs of the number without leading zero bytes
         //
-        byte[] temp = new byte[input.length * 2];
+        final int byteCount = input.length - zeroCount;
+        final int limbCount = (byteCount + 3) / 4;
+        final int[] limbs = new int[limbCount];
+        int p = zeroCount;
+        for (int i = 0; i < limbCount; i++) {
+            final int bytes = i == 0 ? byteCount - (limbCount - 1) * 4 : 4;
+            int limb = 0;
+            for (int b = 0; b < bytes; b++) {
+                limb = (limb << 8) | (input[p++] & 0xFF);
+            }
+            limbs[i] = limb;
+        }
+
+        //
+        // Each division by 58^5 gives five digits, log(256) / log(58) < 1.37 digits per byte
+        //
+        final char[] temp = new char[zeroCount + byteCount * 137 / 100 + 1 + LIMB_DIGITS];
         int j = temp.length;
 
-        int startAt = zeroCount;
-        while (startAt < input.length) {
-            byte mod = divmod58(input, startAt);
-            if (input[startAt] == 0) {
+        int startAt = 0;
+        while (startAt < limbCount) {
+            long remainder = 0;
+            for (int i = startAt; i < limbCount; i++) {
+                final long current = (remainder << 32) | (limbs[i] & UINT_MASK);
+                limbs[i] = (int) (current / LIMB_BASE_58);
+                remainder = current % LIMB_BASE_58;
+            }
+            while (startAt < limbCount && limbs[startAt] == 0) {
                 ++startAt;
             }
 
-            temp[--j] = (byte) ALPHABET[mod];
+            for (int d = 0; d < LIMB_DIGITS; d++) {
+                temp[--j] = ALPHABET[(int) (remainder % BASE_58)];
+                remainder /= BASE_58;
+            }
         }
 
         //
-        // Strip extra '1' if any
+        // Strip extra '1' from the last group, then add one for each leading zero byte
         //
         while (j < temp.length && temp[j] == ALPHABET[0]) {
             ++j;
         }
-
-        //
-        // Add as many leading '1' as there were leading zeros.
-        //
         while (--zeroCount >= 0) {
-            temp[--j] = (byte) ALPHABET[0];
+            temp[--j] = ALPHABET[0];
         }
 
-        byte[] output = copyOfRange(temp, j, temp.length);
-        return new String(output);
+        return new String(temp, j, temp.length - j);
     }
 
     public static byte[] decode(String input) {
-        if (input.length() == 0) {
+        final int length = input.length();
+        if (length == 0) {
             // paying with the same coin
             return new byte[0];
         }
 
-        byte[] input58 = new byte[input.length()];
+        int zeroCount = 0;
+        while (zeroCount < length && input.charAt(zeroCount) == ALPHABET[0]) {
+            ++zeroCount;
+        }
+
         //
-        // Transform the String to a base58 byte sequence
+        // log(58) / log(256) < 0.733 bytes per digit, plus one spare limb
         //
-        for (int i = 0; i < input.length(); ++i) {
-            char c = input.charAt(i);
+        final int limbCount = ((length - zeroCount) * 733 / 1000 + 1 + 3) / 4 + 1;
+        final int[] limbs = new int[limbCount];
+        int top = limbCount; // Most significant non-zero limb
 
-            int digit58 = -1;
-            if (c >= 0 && c < 128) {
-                digit58 = INDEXES[c];
+        int i = zeroCount;
+        while (i < length) {
+            final int digits = Math.min(LIMB_DIGITS, length - i);
+            long carry = 0;
+            for (int d = 0; d < digits; d++) {
+                carry = carry * BASE_58 + digit(input, i++);
             }
-            if (digit58 < 0) {
-                throw new IllegalArgumentException("Not a Base58 input: " + input);
+
+            final long multiplier = POW_58[digits];
+            int l = limbCount - 1;
+            for (; l >= top || carry != 0; l--) {
+                final long current = (limbs[l] & UINT_MASK) * multiplier + carry;
+                limbs[l] = (int) current;
+                carry = current >>> 32;
             }
+            top = l + 1;
+        }
 
-            input58[i] = (byte) digit58;
+        final int skip = top < limbCount ? Integer.numberOfLeadingZeros(limbs[top]) / 8 : 0;
+        final byte[] output = new byte[zeroCount + (limbCount - top) * 4 - skip];
+        int p = zeroCount;
+        for (int l = top; l < limbCount; l++) {
+            for (int shift = l == top ? 24 - skip * 8 : 24; shift >= 0; shift -= 8) {
+                output[p++] = (byte) (limbs[l] >>> shift);
+            }
         }
+        return output;
+    }
 
-        //
-        // Count leading zeroes
-        //
+    /**
+     * Decodes input which is expected to be exactly output.length bytes long, for example an address.
+     * Doesn't allocate nor throw, so it is suitable for validating large amounts of untrusted input.
+     *
+     * @return false if the input is not Base58 or does not decode to exactly output.length bytes, output is undefined then
+     */
+    public static boolean decode(CharSequence input, byte[] output) {
+        final int length = input.length();
         int zeroCount = 0;
-        while (zeroCount < input58.length && input58[zeroCount] == 0) {
+        while (zeroCount < length && input.charAt(zeroCount) == ALPHABET[0]) {
             ++zeroCount;
         }
+        if (zeroCount > output.length) return false;
 
         //
-        // The encoding
+        // Accumulate directly into output, big-endian, with 32-bit steps from its end
         //
-        byte[] temp = new byte[input.length()];
-        int j = temp.length;
-
-        int startAt = zeroCount;
-        while (startAt < input58.length) {
-            byte mod = divmod256(input58, startAt);
-            if (input58[startAt] == 0) {
-                ++startAt;
+        Arrays.fill(output, (byte) 0);
+        int i = zeroCount;
+        while (i < length) {
+            final int digits = Math.min(LIMB_DIGITS, length - i);
+            long carry = 0;
+            for (int d = 0; d < digits; d++) {
+                final char c = input.charAt(i++);
+                final int digit = c < 128 ? INDEXES[c] : -1;
+                if (digit < 0) return false;
+                carry = carry * BASE_58 + digit;
             }
 
-            temp[--j] = mod;
+            final long multiplier = POW_58[digits];
+            for (int end = output.length; end > 0; end -= 4) {
+                final int start = Math.max(0, end - 4);
+                long limb = 0;
+                for (int b = start; b < end; b++) {
+                    limb = (limb << 8) | (output[b] & 0xFF);
+                }
+                long current = limb * multiplier + carry;
+                for (int b = end - 1; b >= start; b--) {
+                    output[b] = (byte) current;
+                    current >>>= 8;
+                }
+                carry = current;
+            }
+            if (carry != 0) return false; // Does not fit
         }
 
-        //
-        // Do no add extra leading zeroes, move j to first non null byte.
-        //
-        while (j < temp.length && temp[j] == 0) {
-            ++j;
+        // Leading '1's must match the leading zero bytes exactly, as in decode(String)
+        int outputZeros = 0;
+        while (outputZeros < output.length && output[outputZeros] == 0) {
+            ++outputZeros;
         }
-
-        return copyOfRange(temp, j - zeroCount, temp.length);
+        return outputZeros == zeroCount;
     }
 
-    private static byte divmod58(byte[] number, int startAt) {
-        int remainder = 0;
-        for (int i = startAt; i < number.length; i++) {
-            int digit256 = (int) number[i] & 0xFF;
-            int temp = remainder * BASE_256 + digit256;
-
-            number[i] = (byte) (temp / BASE_58);
-
-            remainder = temp % BASE_58;
+    private static int digit(String input, int i) {
+        final char c = input.charAt(i);
+        final int digit58 = c < 128 ? INDEXES[c] : -1;
+        if (digit58 < 0) {
+            throw new IllegalArgumentException("Not a Base58 input: " + input);
         }
-
-        return (byte) remainder;
-    }
-
-    private static byte divmod256(byte[] number58, int startAt) {
-        int remainder = 0;
-        for (int i = startAt; i < number58.length; i++) {
-            int digit58 = (int) number58[i] & 0xFF;
-            int temp = remainder * BASE_58 + digit58;
-
-            number58[i] = (byte) (temp / BASE_256);
-
-            remainder = temp % BASE_256;
-        }
-
-        return (byte) remainder;
-    }
-
-    private static byte[] copyOfRange(byte[] source, int from, int to) {
-        byte[] range = new byte[to - from];
-        System.arraycopy(source, from, range, 0, range.length);
-
-        return range;
+        return digit58;
     }
-}
\ No newline at end of file
+}
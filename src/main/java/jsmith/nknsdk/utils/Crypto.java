@@ -1,13 +1,8 @@
 package jsmith.nknsdk.utils;
 
-import net.i2p.crypto.eddsa.EdDSAEngine;
 import net.i2p.crypto.eddsa.EdDSAPrivateKey;
 import net.i2p.crypto.eddsa.EdDSAPublicKey;
-import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
-import net.i2p.crypto.eddsa.spec.EdDSAParameterSpec;
-import net.i2p.crypto.eddsa.spec.EdDSAPublicKeySpec;
 import org.bouncycastle.crypto.digests.RIPEMD160Digest;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +12,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.security.*;
 
 /**
@@ -26,24 +22,27 @@ public class Crypto {
 
     private static final Logger LOG = LoggerFactory.getLogger(Crypto.class);
 
-    private final static EdDSAParameterSpec ED25519 = EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.ED_25519);
-
     static {
-        Security.addProvider(new BouncyCastleProvider());
+        Security.addProvider(DefaultCryptoProvider.BC);
     }
 
-    public static byte[] sha256 (byte[] src) {
-        try {
+    private static volatile CryptoProvider provider = new DefaultCryptoProvider();
 
-            MessageDigest md = MessageDigest.getInstance("SHA-256", "BC");
+    /**
+     * Replaces the implementation of hashing, signatures, key agreement and secret box for the whole SDK
+     */
+    public static void setProvider(CryptoProvider provider) {
+        if (provider == null) throw new NullPointerException("provider");
+        LOG.info("Using {} crypto provider", provider.getName());
+        Crypto.provider = provider;
+    }
 
-            md.update(src);
-            return md.digest();
+    public static CryptoProvider getProvider() {
+        return provider;
+    }
 
-        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
-            LOG.error("SHA-256 checksum failed", e);
-            throw new CryptoError("SHA-256 failed");
-        }
+    public static byte[] sha256 (byte[] src) {
+        return provider.sha256(src);
     }
 
     public static byte[] r160 (byte[] src) {
@@ -92,56 +91,63 @@ public class Crypto {
     }
 
     public static byte[] sha256andSign(EdDSAPrivateKey key, byte[] data) {
-        try {
-            final Signature signatureEngine = new EdDSAEngine();
-            signatureEngine.initSign(key);
-            signatureEngine.update(sha256(data));
-
-            return signatureEngine.sign();
-        } catch (SignatureException | InvalidKeyException e) {
-            throw new CryptoError("Could not sign block", e);
-        }
+        return provider.sign(key, sha256(data));
     }
     public static boolean sha256andVerify(byte[] key, byte[] data, byte[] signature) {
-        final EdDSAPublicKeySpec pubSpec = new EdDSAPublicKeySpec(key, ED25519);
-        return sha256andVerify(new EdDSAPublicKey(pubSpec), data, signature);
+        return provider.verify(key, sha256(data), signature);
     }
     public static boolean sha256andVerify(EdDSAPublicKey key, byte[] data, byte[] signature) {
-        try {
-            final Signature signatureEngine = new EdDSAEngine();
-            signatureEngine.initVerify(key);
-            signatureEngine.update(sha256(data));
+        return provider.verify(key.getAbyte(), sha256(data), signature);
+    }
 
-            return signatureEngine.verify(signature);
+    /**
+     * Equivalent of TweetNaclFast.crypto_box_beforenm
+     * @param shared 32 bytes, filled with the shared key
+     * @return false if the key agreement failed
+     */
+    public static boolean boxBeforeNm(byte[] shared, byte[] curvePublic, byte[] curveSecret) {
+        return provider.sharedKey(shared, curvePublic, curveSecret);
+    }
 
-        } catch (SignatureException | InvalidKeyException e) {
-            throw new CryptoError("Could not verify block", e);
-        }
+    public static boolean secretBox(byte[] key, ByteBuffer message, ByteBuffer out, byte[] nonce) {
+        return provider.secretBox(key, message, out, nonce);
+    }
+
+    public static boolean secretBoxOpen(byte[] key, ByteBuffer box, ByteBuffer out, byte[] nonce) {
+        return provider.secretBoxOpen(key, box, out, nonce);
     }
 
-    private static final SecureRandom randomId_sr = new SecureRandom();
     public static byte[] nextRandom32B() {
         final byte[] id = new byte[32];
-        randomId_sr.nextBytes(id);
+        RandomSource.current().nextBytes(id);
         return id;
     }
     public static byte[] nextRandom16B() {
         final byte[] id = new byte[16];
-        randomId_sr.nextBytes(id);
+        RandomSource.current().nextBytes(id);
         return id;
     }
     public static byte[] nextRandom8B() {
         final byte[] id = new byte[8];
-        randomId_sr.nextBytes(id);
+        RandomSource.current().nextBytes(id);
         return id;
     }
     public static byte[] nextRandom4B() {
         final byte[] id = new byte[4];
-        randomId_sr.nextBytes(id);
+        RandomSource.current().nextBytes(id);
         return id;
     }
     public static int nextRandomInt32() {
-        return randomId_sr.nextInt();
+        return RandomSource.current().nextInt();
+    }
+
+    /**
+     * @return unique 24 byte nonce for secret box, random per thread prefix followed by a counter
+     */
+    public static byte[] nextBoxNonce() {
+        final byte[] nonce = new byte[24];
+        RandomSource.current().nextNonce(nonce);
+        return nonce;
     }
 
     public static class CryptoError extends Error {
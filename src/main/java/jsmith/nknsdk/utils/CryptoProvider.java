@@ -0,0 +1,46 @@
+package jsmith.nknsdk.utils;
+
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of the cryptographic primitives used by the SDK, selected by {@link Crypto#setProvider(CryptoProvider)}.
+ * Implementations must be thread safe and produce the same results as {@link DefaultCryptoProvider}.
+ */
+public interface CryptoProvider {
+
+    String getName();
+
+    byte[] sha256(byte[] data);
+
+    /**
+     * @return 64 byte Ed25519 signature of the message
+     */
+    byte[] sign(EdDSAPrivateKey key, byte[] message);
+
+    /**
+     * @param publicKey 32 byte Ed25519 public key
+     * @return false if the signature is not valid, or the public key is not valid
+     */
+    boolean verify(byte[] publicKey, byte[] message, byte[] signature);
+
+    /**
+     * Shared key for secret box, equivalent of crypto_box_beforenm: X25519 followed by HSalsa20 with zero nonce
+     *
+     * @param shared 32 bytes, filled with the shared key
+     * @return false if the key agreement failed, for example for a public key of small order
+     */
+    boolean sharedKey(byte[] shared, byte[] curvePublic, byte[] curveSecret);
+
+    /**
+     * XSalsa20-Poly1305 encryption of remaining bytes of message into out, see {@link com.iwebpp.crypto.TweetNaclFast.SecretBox#box(ByteBuffer, ByteBuffer, byte[])}
+     */
+    boolean secretBox(byte[] key, ByteBuffer message, ByteBuffer out, byte[] nonce);
+
+    /**
+     * XSalsa20-Poly1305 decryption of remaining bytes of box into out, see {@link com.iwebpp.crypto.TweetNaclFast.SecretBox#open(ByteBuffer, ByteBuffer, byte[])}
+     */
+    boolean secretBoxOpen(byte[] key, ByteBuffer box, ByteBuffer out, byte[] nonce);
+
+}
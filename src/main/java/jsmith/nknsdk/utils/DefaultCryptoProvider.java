@@ -0,0 +1,105 @@
+package jsmith.nknsdk.utils;
+
+import com.iwebpp.crypto.TweetNaclFast;
+import net.i2p.crypto.eddsa.EdDSAEngine;
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
+import net.i2p.crypto.eddsa.spec.EdDSAParameterSpec;
+import net.i2p.crypto.eddsa.spec.EdDSAPublicKeySpec;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.math.ec.rfc7748.X25519;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+
+/**
+ * Pure Java implementation, available everywhere: Ed25519 of net.i2p.crypto.eddsa, SHA-256 and X25519 of BouncyCastle
+ * and secret box of TweetNaclFast
+ */
+public class DefaultCryptoProvider implements CryptoProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultCryptoProvider.class);
+
+    private final static EdDSAParameterSpec ED25519 = EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.ED_25519);
+
+    static final Provider BC = new BouncyCastleProvider();
+
+    static final byte[] HSALSA20_ZERO_NONCE = new byte[16];
+    static final byte[] SALSA20_SIGMA = "expand 32-byte k".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public String getName() {
+        return "Default";
+    }
+
+    @Override
+    public byte[] sha256(byte[] data) {
+        try {
+
+            MessageDigest md = MessageDigest.getInstance("SHA-256", BC);
+
+            md.update(data);
+            return md.digest();
+
+        } catch (NoSuchAlgorithmException e) {
+            LOG.error("SHA-256 checksum failed", e);
+            throw new Crypto.CryptoError("SHA-256 failed");
+        }
+    }
+
+    @Override
+    public byte[] sign(EdDSAPrivateKey key, byte[] message) {
+        try {
+            final Signature signatureEngine = new EdDSAEngine();
+            signatureEngine.initSign(key);
+            signatureEngine.update(message);
+
+            return signatureEngine.sign();
+        } catch (SignatureException | InvalidKeyException e) {
+            throw new Crypto.CryptoError("Could not sign block", e);
+        }
+    }
+
+    @Override
+    public boolean verify(byte[] publicKey, byte[] message, byte[] signature) {
+        final EdDSAPublicKey key;
+        try {
+            key = new EdDSAPublicKey(new EdDSAPublicKeySpec(publicKey, ED25519));
+        } catch (IllegalArgumentException e) {
+            return false; // Not a point on the curve
+        }
+
+        try {
+            final Signature signatureEngine = new EdDSAEngine();
+            signatureEngine.initVerify(key);
+            signatureEngine.update(message);
+
+            return signatureEngine.verify(signature);
+
+        } catch (SignatureException | InvalidKeyException e) {
+            throw new Crypto.CryptoError("Could not verify block", e);
+        }
+    }
+
+    @Override
+    public boolean sharedKey(byte[] shared, byte[] curvePublic, byte[] curveSecret) {
+        if (!X25519.calculateAgreement(curveSecret, 0, curvePublic, 0, shared, 0)) return false;
+        TweetNaclFast.crypto_core_hsalsa20(shared, HSALSA20_ZERO_NONCE, shared, SALSA20_SIGMA);
+        return true;
+    }
+
+    @Override
+    public boolean secretBox(byte[] key, ByteBuffer message, ByteBuffer out, byte[] nonce) {
+        return new TweetNaclFast.SecretBox(key).box(message, out, nonce);
+    }
+
+    @Override
+    public boolean secretBoxOpen(byte[] key, ByteBuffer box, ByteBuffer out, byte[] nonce) {
+        return new TweetNaclFast.SecretBox(key).open(box, out, nonce);
+    }
+
+}
@@ -2,6 +2,8 @@ package jsmith.nknsdk.utils;
 
 import com.google.protobuf.ByteString;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Objects;
 
 /**
@@ -57,6 +59,36 @@ public class EncodeUtils {
             return ByteString.copyFrom(new byte[] {(byte) 0xff}).concat(encodeUint64(n));
         }
     }
+    /**
+     * @return number of bytes written by {@link #putUint(ByteBuffer, long)}
+     */
+    public static int uintSize(long n) {
+        if (n >= 0 && n < 0xfd) return 1;
+        if (n >= 0 && n <= 0xffff) return 3;
+        if (n >= 0 && n <= 0xffffffffL) return 5;
+        return 9;
+    }
+
+    /**
+     * Writes the same bytes as {@link #encodeUint(long)}, without intermediate allocations. Buffer must be little endian
+     */
+    public static void putUint(ByteBuffer buffer, long n) {
+        assert buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        switch (uintSize(n)) {
+            case 1:
+                buffer.put((byte) n);
+                break;
+            case 3:
+                buffer.put((byte) 0xfd).putShort((short) n);
+                break;
+            case 5:
+                buffer.put((byte) 0xfe).putInt((int) n);
+                break;
+            default:
+                buffer.put((byte) 0xff).putLong(n);
+        }
+    }
+
     public static ByteString encodeBytes(ByteString bytes) {
         return Objects.requireNonNull(encodeUint(bytes.size())).concat(bytes);
     }
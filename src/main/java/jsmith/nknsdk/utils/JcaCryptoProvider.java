@@ -0,0 +1,141 @@
+package jsmith.nknsdk.utils;
+
+import com.iwebpp.crypto.TweetNaclFast;
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+
+import javax.crypto.KeyAgreement;
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Uses the native Ed25519, X25519 and SHA-256 of the JDK (15+), which can use intrinsics of the platform.
+ * The JDK has no XSalsa20-Poly1305, so secret box is the same as in {@link DefaultCryptoProvider}.
+ *
+ * Keys are passed to the JDK in their standard PKCS#8 and X.509 encodings, so no JDK 15 classes are needed to build this.
+ * The engines are requested from the SunEC provider explicitly, as BouncyCastle registered by {@link Crypto} provides them too.
+ */
+public class JcaCryptoProvider extends DefaultCryptoProvider {
+
+    private static final byte[] ED25519_PRIVATE_PREFIX = { 0x30, 0x2e, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x04, 0x22, 0x04, 0x20 };
+    private static final byte[] ED25519_PUBLIC_PREFIX = { 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00 };
+    private static final byte[] X25519_PRIVATE_PREFIX = { 0x30, 0x2e, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x6e, 0x04, 0x22, 0x04, 0x20 };
+    private static final byte[] X25519_PUBLIC_PREFIX = { 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x6e, 0x03, 0x21, 0x00 };
+
+    /**
+     * Provider of the native Ed25519 and X25519 of the JDK
+     */
+    private static final String JDK_PROVIDER = "SunEC";
+
+    /**
+     * @return whether the JDK itself supports Ed25519 and X25519, other providers don't count
+     */
+    public static boolean isSupported() {
+        try {
+            Signature.getInstance("Ed25519", JDK_PROVIDER);
+            KeyAgreement.getInstance("X25519", JDK_PROVIDER);
+            KeyFactory.getInstance("Ed25519", JDK_PROVIDER);
+            KeyFactory.getInstance("X25519", JDK_PROVIDER);
+            return true;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Engines are not thread safe and expensive to look up, so each thread has its own
+     */
+    private static final class Engines {
+        final MessageDigest sha256;
+        final Signature ed25519;
+        final KeyFactory ed25519Keys;
+        final KeyAgreement x25519;
+        final KeyFactory x25519Keys;
+
+        // Wallets sign with the same key repeatedly, so the last converted key is kept
+        EdDSAPrivateKey lastKey;
+        PrivateKey lastConvertedKey;
+
+        Engines() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                ed25519 = Signature.getInstance("Ed25519", JDK_PROVIDER);
+                ed25519Keys = KeyFactory.getInstance("Ed25519", JDK_PROVIDER);
+                x25519 = KeyAgreement.getInstance("X25519", JDK_PROVIDER);
+                x25519Keys = KeyFactory.getInstance("X25519", JDK_PROVIDER);
+            } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+                throw new Crypto.CryptoError("Ed25519 or X25519 is not supported by this JDK", e);
+            }
+        }
+    }
+
+    private final ThreadLocal<Engines> engines = ThreadLocal.withInitial(Engines::new);
+
+    /**
+     * @throws Crypto.CryptoError if the JDK doesn't support Ed25519 and X25519, see {@link #isSupported()}
+     */
+    public JcaCryptoProvider() {
+        if (!isSupported()) throw new Crypto.CryptoError("Ed25519 or X25519 is not supported by this JDK");
+    }
+
+    @Override
+    public String getName() {
+        return "JCA";
+    }
+
+    @Override
+    public byte[] sha256(byte[] data) {
+        return engines.get().sha256.digest(data);
+    }
+
+    @Override
+    public byte[] sign(EdDSAPrivateKey key, byte[] message) {
+        final Engines e = engines.get();
+        try {
+            if (e.lastKey != key) {
+                e.lastConvertedKey = e.ed25519Keys.generatePrivate(new PKCS8EncodedKeySpec(encoded(ED25519_PRIVATE_PREFIX, key.getSeed())));
+                e.lastKey = key;
+            }
+            e.ed25519.initSign(e.lastConvertedKey);
+            e.ed25519.update(message);
+            return e.ed25519.sign();
+        } catch (InvalidKeySpecException | InvalidKeyException | SignatureException ex) {
+            throw new Crypto.CryptoError("Could not sign block", ex);
+        }
+    }
+
+    @Override
+    public boolean verify(byte[] publicKey, byte[] message, byte[] signature) {
+        final Engines e = engines.get();
+        try {
+            e.ed25519.initVerify(e.ed25519Keys.generatePublic(new X509EncodedKeySpec(encoded(ED25519_PUBLIC_PREFIX, publicKey))));
+            e.ed25519.update(message);
+            return e.ed25519.verify(signature);
+        } catch (InvalidKeySpecException | InvalidKeyException | SignatureException ex) {
+            return false; // Not a valid public key or signature
+        }
+    }
+
+    @Override
+    public boolean sharedKey(byte[] shared, byte[] curvePublic, byte[] curveSecret) {
+        final Engines e = engines.get();
+        try {
+            e.x25519.init(e.x25519Keys.generatePrivate(new PKCS8EncodedKeySpec(encoded(X25519_PRIVATE_PREFIX, curveSecret))));
+            e.x25519.doPhase(e.x25519Keys.generatePublic(new X509EncodedKeySpec(encoded(X25519_PUBLIC_PREFIX, curvePublic))), true);
+            e.x25519.generateSecret(shared, 0);
+        } catch (GeneralSecurityException | IllegalStateException ex) {
+            return false; // Small order public key
+        }
+        TweetNaclFast.crypto_core_hsalsa20(shared, HSALSA20_ZERO_NONCE, shared, SALSA20_SIGMA);
+        return true;
+    }
+
+    private static byte[] encoded(byte[] prefix, byte[] key) {
+        final byte[] encoded = new byte[prefix.length + key.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(key, 0, encoded, prefix.length, key.length);
+        return encoded;
+    }
+
+}
@@ -0,0 +1,88 @@
+package jsmith.nknsdk.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Per-thread CSPRNG, seeded from one shared {@link SecureRandom}, so that threads generating message ids and nonces
+ * don't contend on it. Each generator gets additional seed after {@link #RESEED_INTERVAL} bytes.
+ */
+final class RandomSource {
+
+    static final int RESEED_INTERVAL = 1 << 20;
+    static final int SEED_LENGTH = 32;
+
+    /**
+     * Box nonces are random prefix and counter, the prefix is regenerated after this many nonces
+     */
+    static final int NONCE_PREFIX_INTERVAL = 1 << 16;
+    static final int NONCE_PREFIX_LENGTH = 16;
+
+    private static final SecureRandom seedSource = new SecureRandom();
+    private static final ThreadLocal<RandomSource> current = ThreadLocal.withInitial(RandomSource::new);
+
+    static RandomSource current() {
+        return current.get();
+    }
+
+    private final SecureRandom random;
+    private int untilReseed = RESEED_INTERVAL;
+
+    private final byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+    private int nonceCounter = NONCE_PREFIX_INTERVAL;
+
+    private RandomSource() {
+        SecureRandom random;
+        try {
+            // Own state per instance and seeded explicitly, so it doesn't touch the system entropy source
+            random = SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            random = new SecureRandom();
+        }
+        final byte[] seed = new byte[SEED_LENGTH];
+        seedSource.nextBytes(seed);
+        random.setSeed(seed);
+        this.random = random;
+    }
+
+    private void use(int bytes) {
+        untilReseed -= bytes;
+        if (untilReseed <= 0) {
+            final byte[] seed = new byte[SEED_LENGTH];
+            seedSource.nextBytes(seed);
+            random.setSeed(seed); // Adds to the current seed
+            untilReseed = RESEED_INTERVAL;
+        }
+    }
+
+    void nextBytes(byte[] bytes) {
+        use(bytes.length);
+        random.nextBytes(bytes);
+    }
+
+    int nextInt() {
+        use(4);
+        return random.nextInt();
+    }
+
+    /**
+     * Fills the nonce with random prefix of this thread and a counter, unique with overwhelming probability
+     * across threads and processes, without generating random bytes for every nonce
+     *
+     * @param nonce at least {@link #NONCE_PREFIX_LENGTH} bytes long
+     */
+    void nextNonce(byte[] nonce) {
+        if (nonceCounter == NONCE_PREFIX_INTERVAL) {
+            nextBytes(noncePrefix);
+            nonceCounter = 0;
+        }
+        int counter = nonceCounter++;
+
+        System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+        for (int i = NONCE_PREFIX_LENGTH; i < nonce.length; i++) {
+            nonce[i] = (byte) counter;
+            counter >>>= 8;
+        }
+    }
+
+}
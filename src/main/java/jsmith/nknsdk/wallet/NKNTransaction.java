@@ -3,12 +3,23 @@ package jsmith.nknsdk.wallet;
 import com.google.protobuf.ByteString;
 import jsmith.nknsdk.client.NKNExplorer;
 import jsmith.nknsdk.client.NKNExplorerException;
+import jsmith.nknsdk.network.ConnectionProvider;
+import jsmith.nknsdk.network.HttpApi;
 import jsmith.nknsdk.wallet.transactions.NameServiceT;
 import jsmith.nknsdk.wallet.transactions.SubscriptionT;
 import jsmith.nknsdk.wallet.transactions.TransactionT;
 import jsmith.nknsdk.wallet.transactions.TransferToT;
+import org.bouncycastle.util.encoders.Hex;
 
 import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
 
 /**
  *
@@ -28,7 +39,7 @@ public class NKNTransaction {
         final NameServiceT nameServiceT = new NameServiceT();
 
         nameServiceT.setName(name);
-        nameServiceT.setPublicKey(ByteString.copyFrom(w.getPublicKey()));
+        nameServiceT.setPublicKey(w.getPublicKeyAsByteString());
         nameServiceT.setNameServiceType(NameServiceT.NameServiceType.REGISTER);
 
         return submitTransaction(nameServiceT, fee);
@@ -42,7 +53,7 @@ public class NKNTransaction {
         final NameServiceT nameServiceT = new NameServiceT();
 
         nameServiceT.setName(name);
-        nameServiceT.setPublicKey(ByteString.copyFrom(w.getPublicKey()));
+        nameServiceT.setPublicKey(w.getPublicKeyAsByteString());
         nameServiceT.setNameServiceType(NameServiceT.NameServiceType.DELETE);
 
         return submitTransaction(nameServiceT, fee);
@@ -64,6 +75,68 @@ public class NKNTransaction {
         return submitTransaction(transferToT, fee);
     }
 
+    /**
+     * Transactions are sent one at a time by default, each after the previous one was accepted. Concurrent submissions
+     * travel over several connections to the node, which may receive them out of order and reject a nonce which is not the next one
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_SUBMISSIONS = 1;
+
+    public List<CompletableFuture<String>> transferToMany(List<AssetTransfer> transfers) throws WalletException {
+        return transferToMany(transfers, BigDecimal.ZERO, DEFAULT_MAX_CONCURRENT_SUBMISSIONS);
+    }
+
+    /**
+     * Signs the transfers in parallel with consecutive nonces, then submits them to one node in order of the nonces,
+     * with at most maxConcurrentSubmissions transactions in flight. When a transfer fails, the transfers not sent yet
+     * fail too and nonces are resynchronized with the node right away. With more than one submission in flight,
+     * the node may receive the transactions out of order and reject them, see {@link #DEFAULT_MAX_CONCURRENT_SUBMISSIONS}.
+     *
+     * @return futures of transaction ids, in order of the transfers, failed with {@link WalletException}
+     */
+    public List<CompletableFuture<String>> transferToMany(List<AssetTransfer> transfers, BigDecimal fee, int maxConcurrentSubmissions) throws WalletException {
+        if (maxConcurrentSubmissions < 1) throw new IllegalArgumentException("Max concurrent submissions must be positive number");
+        if (transfers.isEmpty()) return new ArrayList<>();
+
+        final NonceManager nonces = w.getNonceManager();
+        final long firstNonce;
+        try {
+            firstNonce = nonces.allocate(transfers.size());
+        } catch (NKNExplorerException e) {
+            throw new WalletException("Failed to query current nonce", e);
+        }
+
+        final List<ByteString> signed = buildTransfers(transfers, fee, firstNonce);
+        return new BatchSubmission(signed, maxConcurrentSubmissions, nonces).start();
+    }
+
+    /**
+     * Builds and signs transfers in parallel, without submitting them
+     * @param firstNonce nonce of the first transfer, following transfers get consecutive nonces
+     * @return serialized signed transactions, in order of the transfers
+     */
+    public List<ByteString> buildTransfers(List<AssetTransfer> transfers, BigDecimal fee, long firstNonce) {
+        final long feeLongValue = fee.multiply(new BigDecimal(100000000)).longValue();
+        final ByteString senderProgramHash = w.getProgramHash();
+
+        final ByteString[] signed = new ByteString[transfers.size()];
+        IntStream.range(0, signed.length).parallel().forEach(i -> {
+            final AssetTransfer transfer = transfers.get(i);
+            final TransferToT transferToT = new TransferToT();
+
+            transferToT.setSenderProgramHash(senderProgramHash);
+            transferToT.setRecipientAddress(transfer.toAddress);
+            transferToT.setAmountLongValue(transfer.amount.multiply(new BigDecimal(100000000)).longValue());
+            transferToT.setNonce(firstNonce + i);
+            transferToT.setFeeInLongValue(feeLongValue);
+
+            signed[i] = w.buildTransaction(transferToT);
+        });
+
+        final ArrayList<ByteString> result = new ArrayList<>(signed.length);
+        Collections.addAll(result, signed);
+        return result;
+    }
+
     public String subscribe(String topic, int duration) throws WalletException {
         return subscribe(topic, duration, BigDecimal.ZERO);
     }
@@ -84,7 +157,7 @@ public class NKNTransaction {
     public String subscribe(String topic, int duration, String clientIdentifier, String meta, BigDecimal fee) throws WalletException {
         final SubscriptionT subscriptionT = new SubscriptionT();
 
-        subscriptionT.setPublicKey(ByteString.copyFrom(w.getPublicKey()));
+        subscriptionT.setPublicKey(w.getPublicKeyAsByteString());
         subscriptionT.setTopic(topic);
         subscriptionT.setDuration(duration);
         subscriptionT.setIdentifier(clientIdentifier == null ? "" : clientIdentifier);
@@ -100,7 +173,7 @@ public class NKNTransaction {
     public String unsubscribe(String topic, String clientIdentifier, BigDecimal fee) throws WalletException {
         final SubscriptionT subscriptionT = new SubscriptionT();
 
-        subscriptionT.setPublicKey(ByteString.copyFrom(w.getPublicKey()));
+        subscriptionT.setPublicKey(w.getPublicKeyAsByteString());
         subscriptionT.setTopic(topic);
         subscriptionT.setIdentifier(clientIdentifier == null ? "" : clientIdentifier);
         subscriptionT.setActionType(SubscriptionT.SubscriptionActionType.UNSUBSCRIBE);
@@ -111,14 +184,110 @@ public class NKNTransaction {
 
 
     private String submitTransaction(TransactionT tx, BigDecimal fee) throws WalletException {
+        final NonceManager nonces = w.getNonceManager();
         try {
-            tx.setNonce(NKNExplorer.Wallet.getNonce(w.getAddress()));
-            tx.setFeeInLongValue(fee.multiply(new BigDecimal(100000000)).longValue());
-
-            return w.submitTransaction(tx);
+            tx.setNonce(nonces.allocate());
         } catch (NKNExplorerException e) {
             throw new WalletException("Failed to query current nonce", e);
         }
+        tx.setFeeInLongValue(fee.multiply(new BigDecimal(100000000)).longValue());
+
+        final String txId;
+        try {
+            txId = w.submitTransaction(tx);
+        } catch (WalletException e) {
+            nonces.resync();
+            throw e;
+        }
+        // Rejected, possibly because of the nonce
+        if (txId == null) nonces.resync();
+        return txId;
+    }
+
+    /**
+     * Submits all transactions to one node, so that they arrive in order of their nonces as far as possible.
+     * Submissions are not retried: a transaction which timed out may have been accepted already and resending it would be rejected.
+     * After the first failure no more transactions are sent, as the node would reject all following nonces.
+     */
+    private static final class BatchSubmission {
+
+        private final List<ByteString> transactions;
+        private final int maxInFlight;
+        private final NonceManager nonces;
+        private final ArrayList<CompletableFuture<String>> results;
+
+        private InetSocketAddress node;
+        private int next = 0;
+        private boolean failed = false;
+
+        BatchSubmission(List<ByteString> transactions, int maxInFlight, NonceManager nonces) {
+            this.transactions = transactions;
+            this.maxInFlight = maxInFlight;
+            this.nonces = nonces;
+            this.results = new ArrayList<>(transactions.size());
+            for (int i = 0; i < transactions.size(); i++) results.add(new CompletableFuture<>());
+        }
+
+        List<CompletableFuture<String>> start() {
+            ConnectionProvider.attemptAsync(CompletableFuture::completedFuture).whenComplete((node, error) -> {
+                if (error != null) {
+                    fail(0, error);
+                    return;
+                }
+
+                final int initial;
+                synchronized (this) {
+                    this.node = node;
+                    initial = Math.min(maxInFlight, transactions.size());
+                    next = initial;
+                }
+                for (int i = 0; i < initial; i++) submit(i);
+            });
+            return results;
+        }
+
+        private void submit(int i) {
+            final HashMap<String, Object> params = new HashMap<>();
+            params.put("tx", Hex.toHexString(transactions.get(i).toByteArray()));
+
+            HttpApi.rpcRequestAsync(node, "sendrawtransaction", params).whenComplete((txId, error) -> {
+                if (error != null) {
+                    fail(i, error);
+                    return;
+                }
+                results.get(i).complete((String) txId);
+
+                int submitNext = -1;
+                synchronized (this) {
+                    if (!failed && next < transactions.size()) submitNext = next++;
+                }
+                if (submitNext >= 0) submit(submitNext);
+            });
+        }
+
+        /**
+         * Fails the transaction i and all transactions not sent yet, then resynchronizes the nonces right away
+         */
+        private void fail(int i, Throwable error) {
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            results.get(i).completeExceptionally(new WalletException("Failed to send transaction", cause));
+
+            final int unsent;
+            final boolean first;
+            synchronized (this) {
+                first = !failed;
+                failed = true;
+                unsent = Math.max(next, i + 1);
+                next = transactions.size();
+            }
+            if (!first) return;
+
+            nonces.resync();
+            final WalletException notSent = new WalletException("Transaction not sent, preceding transaction failed", cause);
+            for (int j = unsent; j < transactions.size(); j++) {
+                results.get(j).completeExceptionally(notSent);
+            }
+        }
     }
 
     public String customTransaction(TransactionT tx) throws WalletException {
@@ -0,0 +1,74 @@
+package jsmith.nknsdk.wallet;
+
+import jsmith.nknsdk.client.NKNExplorer;
+import jsmith.nknsdk.client.NKNExplorerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates transaction nonces of one wallet locally, so that transactions can be submitted back to back
+ * without querying the nonce for each of them. The nonce is queried from the node only on first use and after {@link #resync()},
+ * which is done automatically when a transaction is rejected.
+ */
+public class NonceManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NonceManager.class);
+
+    private final String address;
+
+    /**
+     * Volatile, as {@link #resync()} doesn't take the monitor, which is held by allocation during the query
+     */
+    private volatile boolean synced = false;
+    private long next;
+
+    NonceManager(String address) {
+        this.address = address;
+    }
+
+    /**
+     * @return nonce for next transaction, each nonce is returned only once until resync
+     */
+    public synchronized long allocate() throws NKNExplorerException {
+        return allocate(1);
+    }
+
+    /**
+     * @return first of count consecutive nonces
+     */
+    public synchronized long allocate(int count) throws NKNExplorerException {
+        if (count < 1) throw new IllegalArgumentException("Count must be positive number");
+        if (!synced) {
+            // Set before the query, so that a resync requested while it is running is not lost
+            synced = true;
+            try {
+                next = NKNExplorer.Wallet.getNonce(address);
+            } catch (NKNExplorerException | RuntimeException e) {
+                synced = false;
+                throw e;
+            }
+            LOG.debug("Nonce of {} synchronized to {}", address, next);
+        }
+        final long first = next;
+        next += count;
+        return first;
+    }
+
+    /**
+     * Nonce will be queried from the node again before next allocation,
+     * should be called when a transaction was rejected or the wallet was used elsewhere.
+     * Never blocks, so it can be called from completions on the async RPC thread
+     */
+    public void resync() {
+        synced = false;
+    }
+
+    /**
+     * Sets the nonce of next transaction, without querying the node
+     */
+    public synchronized void set(long nextNonce) {
+        next = nextNonce;
+        synced = true;
+    }
+
+}
@@ -1,7 +1,6 @@
 package jsmith.nknsdk.wallet;
 
 import com.google.protobuf.ByteString;
-import com.iwebpp.crypto.TweetNaclFast;
 import jsmith.nknsdk.client.NKNExplorer;
 import jsmith.nknsdk.client.NKNExplorerException;
 import jsmith.nknsdk.network.ConnectionProvider;
@@ -44,6 +43,13 @@ public class Wallet {
     private byte[] seed;
     private String contractDataStr = "";
 
+    // Derived from the key pair, computed once
+    private ByteString publicKey;
+    private ByteString signatureRedeem;
+    private ByteString programHash;
+    private String address;
+    private NonceManager nonceManager;
+
     private final static EdDSAParameterSpec ED25519 = EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.ED_25519);
 
     public static Wallet createNew() {
@@ -72,7 +78,14 @@ public class Wallet {
 
         w.seed = seed;
 
-        w.contractDataStr = Hex.toHexString(WalletUtils.getSignatureRedeemFromPublicKey(w.getPublicKey())) + "00" + Hex.toHexString(w.getProgramHash().toByteArray());
+        final byte[] encodedWithPrefix = w.keyPair.getPublic().getEncoded();
+        w.publicKey = ByteString.copyFrom(encodedWithPrefix, encodedWithPrefix.length - 32, 32);
+        final byte[] publicKey = w.publicKey.toByteArray();
+        w.signatureRedeem = ByteString.copyFrom(WalletUtils.getSignatureRedeemFromPublicKey(publicKey));
+        w.programHash = ByteString.copyFrom(WalletUtils.getProgramHashFromPublicKey(publicKey));
+        w.address = WalletUtils.getAddressFromProgramHash(w.programHash);
+
+        w.contractDataStr = Hex.toHexString(w.signatureRedeem.toByteArray()) + "00" + Hex.toHexString(w.programHash.toByteArray());
 
         return w;
     }
@@ -143,8 +156,16 @@ public class Wallet {
         }
     }
 
+    /**
+     * Signs the transaction with the key of this wallet
+     * @return serialized signed transaction
+     */
+    public ByteString buildTransaction(TransactionT tx) {
+        return tx.build((EdDSAPrivateKey) keyPair.getPrivate(), signatureRedeem);
+    }
+
     public String submitTransaction(TransactionT tx) throws WalletException {
-        final String txRaw = Hex.toHexString(tx.build((EdDSAPrivateKey) keyPair.getPrivate(), ByteString.copyFrom(WalletUtils.getSignatureRedeemFromPublicKey(getPublicKey()))).toByteArray());
+        final String txRaw = Hex.toHexString(buildTransaction(tx).toByteArray());
         try {
             return ConnectionProvider.attempt((bootstrapNode) -> HttpApi.sendRawTransaction(bootstrapNode, txRaw));
         } catch (Exception t) {
@@ -204,21 +225,31 @@ public class Wallet {
         return NKNExplorer.Wallet.queryBalance(getAddress());
     }
 
+    /**
+     * @return copy of the public key, see {@link #getPublicKeyAsByteString()}
+     */
     public byte[] getPublicKey() {
-        assert keyPair != null : "KeyPair is null, this should never happen";
-
-        final byte[] encodedWithPrefix = keyPair.getPublic().getEncoded();
-        final byte[] encoded = new byte[32];
-        System.arraycopy(encodedWithPrefix, encodedWithPrefix.length - encoded.length, encoded, 0, encoded.length);
+        return publicKey.toByteArray();
+    }
 
-        return encoded;
+    public ByteString getPublicKeyAsByteString() {
+        return publicKey;
     }
+
     public String getAddress() {
-        return WalletUtils.getAddressFromProgramHash(getProgramHash());
+        return address;
     }
 
     public ByteString getProgramHash() {
-        return ByteString.copyFrom(WalletUtils.getProgramHashFromPublicKey(getPublicKey()));
+        return programHash;
+    }
+
+    /**
+     * @return manager of nonces used for the transactions of this wallet
+     */
+    public synchronized NonceManager getNonceManager() {
+        if (nonceManager == null) nonceManager = new NonceManager(getAddress());
+        return nonceManager;
     }
 
     public String getContractDataAsString() {
@@ -245,11 +276,9 @@ public class Wallet {
             return null; // Invalid identifier
         }
 
-        final byte[] curvePublic = EdToCurve.convertPublicKey(pk);
-        if (curvePublic == null) return null; // Invalid key
-
         final byte[] shared = new byte[32];
-        TweetNaclFast.crypto_box_beforenm(shared, curvePublic, curveSecret);
+        if (!EdToCurve.convertPublicKey(pk, shared)) return null; // Invalid key
+        if (!Crypto.boxBeforeNm(shared, shared, curveSecret)) return null; // Key of small order
 
         return shared;
 
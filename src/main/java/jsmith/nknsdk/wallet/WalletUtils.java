@@ -2,8 +2,14 @@ package jsmith.nknsdk.wallet;
 
 import com.google.protobuf.ByteString;
 import jsmith.nknsdk.utils.Base58;
+import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.util.encoders.Hex;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
 import static jsmith.nknsdk.utils.Crypto.*;
 
 /**
@@ -13,40 +19,130 @@ public class WalletUtils {
 
     public static final byte[] ADDRESS_PREFIX = new byte[]{ 0x02, (byte) 0xb8, 0x25 }; // NKN in Base58
 
+    public static final int PROGRAM_HASH_LENGTH = 20;
+    public static final int ADDRESS_CHECKSUM_LENGTH = 4;
+    public static final int ADDRESS_LENGTH = ADDRESS_PREFIX.length + PROGRAM_HASH_LENGTH + ADDRESS_CHECKSUM_LENGTH;
+
     public static String getProgramHashAsHexString(String addressStr) {
-        final byte[] address = Base58.decode(addressStr);
-        final byte[] programHash = new byte[address.length - 4 - ADDRESS_PREFIX.length];
-        System.arraycopy(address, ADDRESS_PREFIX.length, programHash, 0, programHash.length);
-        return Hex.toHexString(programHash);
+        return Hex.toHexString(getProgramHashAsByteArray(addressStr));
     }
 
     public static byte[] getProgramHashAsByteArray(String addressStr) {
-        final byte[] address = Base58.decode(addressStr);
-        final byte[] programHash = new byte[address.length - 4 - ADDRESS_PREFIX.length];
+        final byte[] address = decodeAddress(addressStr);
+        final byte[] programHash = new byte[address.length - ADDRESS_CHECKSUM_LENGTH - ADDRESS_PREFIX.length];
         System.arraycopy(address, ADDRESS_PREFIX.length, programHash, 0, programHash.length);
         return programHash;
     }
 
     public static ByteString getProgramHashAsByteString(String addressStr) {
-        final byte[] address = Base58.decode(addressStr);
-        final byte[] programHash = new byte[address.length - 4 - ADDRESS_PREFIX.length];
-        System.arraycopy(address, ADDRESS_PREFIX.length, programHash, 0, programHash.length);
-        return ByteString.copyFrom(programHash);
+        final byte[] address = decodeAddress(addressStr);
+        return ByteString.copyFrom(address, ADDRESS_PREFIX.length, address.length - ADDRESS_CHECKSUM_LENGTH - ADDRESS_PREFIX.length);
     }
 
-    public static String getAddressFromProgramHash(ByteString programHash) {
-        byte[] sh = ByteString.copyFrom(ADDRESS_PREFIX).concat(programHash).toByteArray();
-        final byte[] x = doubleSha256(sh);
+    private static byte[] decodeAddress(String addressStr) {
+        final byte[] address = new byte[ADDRESS_LENGTH];
+        if (Base58.decode(addressStr, address)) return address;
+        return Base58.decode(addressStr); // Not a regular address, decode as before
+    }
 
-        final byte[] enc = new byte[sh.length + 4];
-        System.arraycopy(sh, 0, enc, 0, sh.length);
-        System.arraycopy(x, 0, enc, sh.length, 4);
+    public static String getAddressFromProgramHash(ByteString programHash) {
+        final byte[] enc = new byte[ADDRESS_PREFIX.length + programHash.size() + ADDRESS_CHECKSUM_LENGTH];
+        System.arraycopy(ADDRESS_PREFIX, 0, enc, 0, ADDRESS_PREFIX.length);
+        programHash.copyTo(enc, ADDRESS_PREFIX.length);
+        appendChecksum(enc);
 
         return Base58.encode(enc);
     }
 
     public static String getAddressFromProgramHash(byte[] programHash) {
-        return getAddressFromProgramHash(ByteString.copyFrom(programHash));
+        final byte[] enc = new byte[ADDRESS_PREFIX.length + programHash.length + ADDRESS_CHECKSUM_LENGTH];
+        System.arraycopy(ADDRESS_PREFIX, 0, enc, 0, ADDRESS_PREFIX.length);
+        System.arraycopy(programHash, 0, enc, ADDRESS_PREFIX.length, programHash.length);
+        appendChecksum(enc);
+
+        return Base58.encode(enc);
+    }
+
+    private static void appendChecksum(byte[] enc) {
+        final int checksumAt = enc.length - ADDRESS_CHECKSUM_LENGTH;
+        final byte[] x = doubleSha256(Arrays.copyOf(enc, checksumAt));
+        System.arraycopy(x, 0, enc, checksumAt, ADDRESS_CHECKSUM_LENGTH);
+    }
+
+    /**
+     * Checks the prefix, length and checksum of the address
+     */
+    public static boolean isAddressValid(String address) {
+        return new AddressDecoder().decode(address);
+    }
+
+    private static final int BULK_CHUNK_SIZE = 64 * 64;
+
+    /**
+     * Validates the addresses in parallel, see {@link #isAddressValid(String)}
+     *
+     * @return set with bits of valid addresses set, indexed as the addresses
+     */
+    public static BitSet validateAddresses(List<String> addresses) {
+        final long[] words = new long[(addresses.size() + 63) / 64];
+        final int chunks = (addresses.size() + BULK_CHUNK_SIZE - 1) / BULK_CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final AddressDecoder decoder = new AddressDecoder();
+            final int end = Math.min(addresses.size(), (chunk + 1) * BULK_CHUNK_SIZE);
+            for (int i = chunk * BULK_CHUNK_SIZE; i < end; i++) {
+                // Chunks are aligned to words, so each word is written by one thread only
+                if (decoder.decode(addresses.get(i))) words[i >>> 6] |= 1L << i;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Converts the addresses to program hashes in parallel
+     *
+     * @return program hashes of all addresses, {@link #PROGRAM_HASH_LENGTH} bytes each, in order of the addresses
+     * @throws IllegalArgumentException if any of the addresses is not valid
+     */
+    public static byte[] programHashes(List<String> addresses) {
+        final byte[] programHashes = new byte[addresses.size() * PROGRAM_HASH_LENGTH];
+        final int chunks = (addresses.size() + BULK_CHUNK_SIZE - 1) / BULK_CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final AddressDecoder decoder = new AddressDecoder();
+            final int end = Math.min(addresses.size(), (chunk + 1) * BULK_CHUNK_SIZE);
+            for (int i = chunk * BULK_CHUNK_SIZE; i < end; i++) {
+                if (!decoder.decode(addresses.get(i))) {
+                    throw new IllegalArgumentException("Address #" + i + " is not valid: " + addresses.get(i));
+                }
+                System.arraycopy(decoder.address, ADDRESS_PREFIX.length, programHashes, i * PROGRAM_HASH_LENGTH, PROGRAM_HASH_LENGTH);
+            }
+        });
+        return programHashes;
+    }
+
+    /**
+     * Decodes and verifies addresses with reused buffers and digest, one instance per thread
+     */
+    private static final class AddressDecoder {
+        final byte[] address = new byte[ADDRESS_LENGTH];
+        private final byte[] hash = new byte[32];
+        private final SHA256Digest digest = new SHA256Digest();
+
+        boolean decode(String addressStr) {
+            if (addressStr == null || !Base58.decode(addressStr, address)) return false;
+            for (int i = 0; i < ADDRESS_PREFIX.length; i++) {
+                if (address[i] != ADDRESS_PREFIX[i]) return false;
+            }
+
+            final int checksumAt = ADDRESS_LENGTH - ADDRESS_CHECKSUM_LENGTH;
+            digest.update(address, 0, checksumAt);
+            digest.doFinal(hash, 0);
+            digest.update(hash, 0, hash.length);
+            digest.doFinal(hash, 0);
+            for (int i = 0; i < ADDRESS_CHECKSUM_LENGTH; i++) {
+                if (hash[i] != address[checksumAt + i]) return false;
+            }
+            return true;
+        }
     }
 
     public static byte[] getProgramHashFromPublicKey(byte[] publicKey) {
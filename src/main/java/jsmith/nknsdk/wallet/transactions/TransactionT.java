@@ -6,6 +6,9 @@ import jsmith.nknsdk.utils.Crypto;
 import jsmith.nknsdk.utils.EncodeUtils;
 import net.i2p.crypto.eddsa.EdDSAPrivateKey;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  *
  */
@@ -67,14 +70,17 @@ public abstract class TransactionT {
     }
 
     private TransactionP.Program sign(EdDSAPrivateKey privateKey, ByteString signatureRedeem) {
-        final ByteString dataToSign = ByteString.EMPTY
-                .concat(EncodeUtils.encodeUint32(payload.getTypeValue()))
-                .concat(EncodeUtils.encodeBytes(payload.getData()))
-                .concat(EncodeUtils.encodeUint64(nonce))
-                .concat(EncodeUtils.encodeUint64(feeLongValue))
-                .concat(EncodeUtils.encodeBytes(ByteString.EMPTY)); // unsignedTx.attributes
-
-        final byte[] sig = Crypto.sha256andSign(privateKey, dataToSign.toByteArray());
+        final ByteString payloadData = payload.getData();
+        final ByteBuffer dataToSign = ByteBuffer.allocate(4 + EncodeUtils.uintSize(payloadData.size()) + payloadData.size() + 8 + 8 + EncodeUtils.uintSize(0))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        dataToSign.putInt(payload.getTypeValue());
+        EncodeUtils.putUint(dataToSign, payloadData.size());
+        payloadData.copyTo(dataToSign);
+        dataToSign.putLong(nonce);
+        dataToSign.putLong(feeLongValue);
+        EncodeUtils.putUint(dataToSign, 0); // unsignedTx.attributes
+
+        final byte[] sig = Crypto.sha256andSign(privateKey, dataToSign.array());
         final TransactionP.Program.Builder programBuilder = TransactionP.Program.newBuilder();
         programBuilder.setCode(signatureRedeem);
         programBuilder.setParameter(EncodeUtils.encodeUint(sig.length).concat(ByteString.copyFrom(sig)));
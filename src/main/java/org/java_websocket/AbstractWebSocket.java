@@ -73,6 +73,11 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
      */
     private ScheduledFuture connectionLostCheckerFuture;
 
+    /**
+     * Attribute for a service shared by many websockets, which is used instead of a own service if set
+     */
+    private ScheduledExecutorService sharedConnectionLostCheckerService;
+
     /**
      * Attribute for the lost connection check interval in nanoseconds
 	 * @since 1.3.4
@@ -171,7 +176,11 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
 	 */
 	private void restartConnectionLostTimer() {
 		cancelConnectionLostTimer();
-		connectionLostCheckerService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("connectionLostChecker"));
+		if( sharedConnectionLostCheckerService != null ) {
+			connectionLostCheckerService = sharedConnectionLostCheckerService;
+		} else {
+			connectionLostCheckerService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("connectionLostChecker"));
+		}
 		Runnable connectionLostChecker = new Runnable() {
 
 			/**
@@ -233,6 +242,19 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
 		}
 	}
 
+	/**
+	 * Use the given service for lost connection checking instead of starting a thread for this websocket.
+	 * The service is not shut down when the timer is stopped.
+	 * Must be set before the connection lost timer is started
+	 *
+	 * @param service the shared service, null to use a own one
+	 */
+	protected void setSharedConnectionLostCheckerService( ScheduledExecutorService service ) {
+		synchronized (syncConnectionLost) {
+			this.sharedConnectionLostCheckerService = service;
+		}
+	}
+
 	/**
      * Getter to get all the currently available connections
      * @return the currently available connections
@@ -246,7 +268,9 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
      */
     private void cancelConnectionLostTimer() {
        if( connectionLostCheckerService != null ) {
-            connectionLostCheckerService.shutdownNow();
+            if( connectionLostCheckerService != sharedConnectionLostCheckerService ) {
+                connectionLostCheckerService.shutdownNow();
+            }
             connectionLostCheckerService = null;
         }
         if( connectionLostCheckerFuture != null ) {
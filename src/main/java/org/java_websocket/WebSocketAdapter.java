@@ -35,6 +35,8 @@ import org.java_websocket.handshake.HandshakeImpl1Server;
 import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class default implements all methods of the WebSocketListener that can be overridden optionally when advances functionalities is needed.<br>
  **/
@@ -65,6 +67,17 @@ public abstract class WebSocketAdapter implements WebSocketListener {
 		//To overwrite
 	}
 
+	/**
+	 * This default implementation passes the message to {@link #onWebsocketMessage(WebSocket, ByteBuffer)} and doesn't keep the buffer.
+	 *
+	 * @see org.java_websocket.WebSocketListener#onWebsocketMessageOwned(WebSocket, ByteBuffer)
+	 */
+	@Override
+	public boolean onWebsocketMessageOwned( WebSocket conn, ByteBuffer blob ) {
+		onWebsocketMessage( conn, blob );
+		return false;
+	}
+
 	/**
 	 * This default implementation will send a pong in response to the received ping.
 	 * The pong frame will have the same payload as the ping frame.
@@ -33,6 +33,7 @@ import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.framing.Framedata;
 import org.java_websocket.framing.PingFrame;
 import org.java_websocket.handshake.*;
+import org.java_websocket.util.ByteBufferPool;
 import org.java_websocket.util.Charsetfunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -368,11 +369,13 @@ public class WebSocketImpl implements WebSocket {
 	}
 
 	private void decodeFrames( ByteBuffer socketBuffer ) {
-		List<Framedata> frames;
+		List<Framedata> frames = Collections.emptyList();
+		int processed = 0;
 		try {
 			frames = draft.translateFrame( socketBuffer );
 			for( Framedata f : frames ) {
 				log.trace( "matched frame: {}" , f );
+				processed++;
 				draft.processFrame( this, f );
 			}
 		} catch ( LimitExceededException e ) {
@@ -385,6 +388,11 @@ public class WebSocketImpl implements WebSocket {
 			log.error("Closing due to invalid data in frame", e);
 			wsl.onWebsocketError( this, e );
 			close(e);
+		} finally {
+			// Frames after a failed one are never processed, so their pooled payloads are released here
+			for( Framedata f : frames.subList( processed, frames.size() ) ) {
+				ByteBufferPool.SHARED.release( f.getPayloadData() );
+			}
 		}
 	}
 
@@ -627,12 +635,15 @@ public class WebSocketImpl implements WebSocket {
 		if( frames == null ) {
 			throw new IllegalArgumentException();
 		}
-		ArrayList<ByteBuffer> outgoingFrames = new ArrayList<ByteBuffer>();
-		for( Framedata f : frames ) {
-			log.trace( "send frame: {}", f);
-			outgoingFrames.add( draft.createBinaryFrame( f ) );
+		// Extensions like permessage-deflate keep state between frames, so the frames have to be queued in the order they were encoded
+		synchronized(synchronizeWriteObject) {
+			ArrayList<ByteBuffer> outgoingFrames = new ArrayList<ByteBuffer>();
+			for( Framedata f : frames ) {
+				log.trace( "send frame: {}", f);
+				outgoingFrames.add( draft.createBinaryFrame( f ) );
+			}
+			write( outgoingFrames );
 		}
-		write( outgoingFrames );
 	}
 
 	@Override
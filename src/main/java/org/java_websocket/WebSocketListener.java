@@ -111,6 +111,18 @@ public interface WebSocketListener {
 	 */
 	void onWebsocketMessage(WebSocket conn, ByteBuffer blob);
 
+	/**
+	 * Called when an entire binary frame has been received, instead of {@link #onWebsocketMessage(WebSocket, ByteBuffer)}.
+	 * The buffer is allocated for this message only and never reused, so the listener may keep it instead of copying it.
+	 *
+	 * @param conn
+	 *            The <tt>WebSocket</tt> instance this event is occurring on.
+	 * @param blob
+	 *            The binary message that was received.
+	 * @return true if the listener keeps the buffer
+	 */
+	boolean onWebsocketMessageOwned(WebSocket conn, ByteBuffer blob);
+
 	/**
 	 * Called after <var>onHandshakeReceived</var> returns <var>true</var>.
 	 * Indicates that a complete WebSocket connection has been established,
@@ -49,6 +49,7 @@ import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
@@ -58,6 +59,7 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A subclass must implement at least <var>onOpen</var>, <var>onClose</var>, and <var>onMessage</var> to be
@@ -96,6 +98,26 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 */
 	private Proxy proxy = Proxy.NO_PROXY;
 
+	/**
+	 * The selector loop serving this connection instead of the read and write threads, if any
+	 */
+	private WebSocketSelectorLoop selectorLoop = null;
+
+	/**
+	 * The channel used with the selector loop
+	 */
+	private SocketChannel channel = null;
+
+	/**
+	 * Whether a flush of the outgoing queue has been requested from the selector loop
+	 */
+	private final AtomicBoolean writeRequested = new AtomicBoolean( false );
+
+	/**
+	 * Whether the selector loop has stopped reading from this connection
+	 */
+	private final AtomicBoolean readPaused = new AtomicBoolean( false );
+
 	/**
 	 * The thread to write outgoing message
 	 */
@@ -335,6 +357,10 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 				this.socket.close();
 				this.socket = null;
 			}
+			if( this.channel != null ) {
+				this.channel.close();
+				this.channel = null;
+			}
 		} catch ( Exception e ) {
 			onError( e );
 			engine.closeConnection( CloseFrame.ABNORMAL_CLOSE, e.getMessage() );
@@ -349,8 +375,12 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 * Initiates the websocket connection. This method does not block.
 	 */
 	public void connect() {
-		if( connectReadThread != null )
+		if( connectReadThread != null || channel != null )
 			throw new IllegalStateException( "WebSocketClient objects are not reuseable" );
+		if( selectorLoop != null ) {
+			connectSelector();
+			return;
+		}
 		connectReadThread = new Thread( this );
 		connectReadThread.setName( "WebSocketConnectReadThread-" + connectReadThread.getId() );
 		connectReadThread.start();
@@ -388,6 +418,12 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	public void close() {
 		if( writeThread != null ) {
 			engine.close( CloseFrame.NORMAL );
+		} else if( channel != null ) {
+			if( engine.getReadyState() == ReadyState.NOT_YET_CONNECTED ) {
+				engine.closeConnection( CloseFrame.NEVER_CONNECTED, "Closed before the connection was established" );
+			} else {
+				engine.close( CloseFrame.NORMAL );
+			}
 		}
 	}
 	/**
@@ -583,6 +619,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		onMessage( blob );
 	}
 
+	@Override
+	public final boolean onWebsocketMessageOwned( WebSocket conn, ByteBuffer blob ) {
+		return onMessageOwned( blob );
+	}
+
 	/**
 	 * Calls subclass' implementation of <var>onOpen</var>.
 	 */
@@ -616,7 +657,10 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 
 	@Override
 	public final void onWriteDemand( WebSocket conn ) {
-		// nothing to do
+		// the write thread waits on the queue by itself
+		if( selectorLoop != null && writeRequested.compareAndSet( false, true ) ) {
+			selectorLoop.requestWrite( this );
+		}
 	}
 
 	@Override
@@ -662,6 +706,8 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	public InetSocketAddress getLocalSocketAddress(WebSocket conn ) {
 		if( socket != null )
 			return (InetSocketAddress) socket.getLocalSocketAddress();
+		if( channel != null )
+			return (InetSocketAddress) channel.socket().getLocalSocketAddress();
 		return null;
 	}
 
@@ -669,6 +715,8 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	public InetSocketAddress getRemoteSocketAddress(WebSocket conn ) {
 		if( socket != null )
 			return (InetSocketAddress) socket.getRemoteSocketAddress();
+		if( channel != null )
+			return (InetSocketAddress) channel.socket().getRemoteSocketAddress();
 		return null;
 	}
 
@@ -721,10 +769,26 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		//To overwrite
 	}
 
+	/**
+	 * Callback for binary messages received from the remote host, which may keep the buffer instead of copying it.<br>
+	 * The buffer is never reused by this websocket. By default calls {@link #onMessage(ByteBuffer)} and returns false.
+	 *
+	 * @param bytes
+	 *            The binary message that was received.
+	 * @return true if the buffer is kept
+	 **/
+	public boolean onMessageOwned( ByteBuffer bytes ) {
+		onMessage( bytes );
+		return false;
+	}
+
 
 	private class WebsocketWriteThread implements Runnable {
 
+		private static final int WRITE_CHUNK_SIZE = 16384;
+
 		private final WebSocketClient webSocketClient;
+		private byte[] writeChunk;
 
 		WebsocketWriteThread(WebSocketClient webSocketClient) {
 			this.webSocketClient = webSocketClient;
@@ -750,23 +814,42 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		private void runWriteData() throws IOException {
 			try {
 				while( !Thread.interrupted() ) {
-                    ByteBuffer buffer = engine.outQueue.take();
-					ostream.write( buffer.array(), 0, buffer.limit() );
-					while (!engine.outQueue.isEmpty()) {
-                        buffer = engine.outQueue.take();
-                        ostream.write( buffer.array(), 0, buffer.limit() );
-                    }
+					writeBuffer( engine.outQueue.take() );
+					while( !engine.outQueue.isEmpty() ) {
+						writeBuffer( engine.outQueue.take() );
+					}
 					ostream.flush();
 				}
 			} catch ( InterruptedException e ) {
-				for (ByteBuffer buffer : engine.outQueue) {
-					ostream.write( buffer.array(), 0, buffer.limit() );
+				for( ByteBuffer buffer : engine.outQueue ) {
+					writeBuffer( buffer );
 					ostream.flush();
 				}
 				Thread.currentThread().interrupt();
 			}
 		}
 
+		/**
+		 * Write the remaining content of the buffer into the outstream.
+		 * Heap buffers are written directly from their backing array, others are copied through a reused chunk
+		 * @throws IOException if write did not work
+		 */
+		private void writeBuffer( ByteBuffer buffer ) throws IOException {
+			if( buffer.hasArray() ) {
+				ostream.write( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+				return;
+			}
+			if( writeChunk == null ) {
+				writeChunk = new byte[WRITE_CHUNK_SIZE];
+			}
+			final ByteBuffer source = buffer.duplicate();
+			while( source.hasRemaining() ) {
+				final int length = Math.min( source.remaining(), writeChunk.length );
+				source.get( writeChunk, 0, length );
+				ostream.write( writeChunk, 0, length );
+			}
+		}
+
 		/**
 		 * Closing the socket
 		 */
@@ -809,6 +892,126 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		this.socket = socket;
 	}
 
+	/**
+	 * Serve this connection by a shared selector loop instead of own read and write threads.<br>
+	 * This method must be called before <code>connect</code>.
+	 * Secure websockets, proxies and custom sockets are not supported with a selector loop.
+	 * @param selectorLoop the selector loop to use, null to use own threads
+	 */
+	public void setSelectorLoop( WebSocketSelectorLoop selectorLoop ) {
+		if( connectReadThread != null || channel != null ) {
+			throw new IllegalStateException( "selector loop must be set before connecting" );
+		}
+		this.selectorLoop = selectorLoop;
+		setSharedConnectionLostCheckerService( selectorLoop == null ? null : selectorLoop.getScheduler() );
+	}
+
+	/**
+	 * Returns the selector loop serving this connection
+	 * @return the selector loop or null, if the connection uses own threads
+	 */
+	public WebSocketSelectorLoop getSelectorLoop() {
+		return selectorLoop;
+	}
+
+	/**
+	 * Stops reading from the connection, so that the remote host is slowed down by TCP flow control
+	 * while the received messages are processed elsewhere. Frames already read are still delivered.<br>
+	 * Only supported with a selector loop, the own read thread is simply blocked by its listener instead.
+	 * Note that pongs are not read either, so a long pause is detected as a lost connection.
+	 * @return false if reading is already paused or the connection has no selector loop
+	 */
+	public boolean pauseReading() {
+		if( selectorLoop == null || !readPaused.compareAndSet( false, true ) ) {
+			return false;
+		}
+		selectorLoop.updateReadInterest( this );
+		return true;
+	}
+
+	/**
+	 * Continues reading after {@link #pauseReading()}
+	 * @return false if reading is not paused
+	 */
+	public boolean resumeReading() {
+		if( selectorLoop == null || !readPaused.compareAndSet( true, false ) ) {
+			return false;
+		}
+		selectorLoop.updateReadInterest( this );
+		return true;
+	}
+
+	/**
+	 * Returns whether reading from the connection is paused
+	 * @return true if {@link #pauseReading()} has been called and reading has not been resumed since
+	 */
+	public boolean isReadPaused() {
+		return readPaused.get();
+	}
+
+	/**
+	 * Open a non-blocking channel and hand it over to the selector loop
+	 */
+	private void connectSelector() {
+		try {
+			if( "wss".equals( uri.getScheme() ) ) {
+				throw new IOException( "Secure websockets are not supported with a selector loop" );
+			}
+			channel = SocketChannel.open();
+			channel.configureBlocking( false );
+			channel.socket().setTcpNoDelay( isTcpNoDelay() );
+			channel.socket().setReuseAddress( isReuseAddr() );
+			engine.setChannel( channel );
+
+			boolean connected = channel.connect( new InetSocketAddress( dnsResolver.resolve( uri ), this.getPort() ) );
+			selectorLoop.register( this, channel, connected );
+		} catch ( IOException | SecurityException | UnresolvedAddressException e ) {
+			onWebsocketError( engine, e );
+			engine.closeConnection( CloseFrame.NEVER_CONNECTED, e.getMessage() );
+		}
+	}
+
+	/**
+	 * Called by the selector loop once the channel is connected
+	 */
+	void onSelectorConnected() {
+		try {
+			sendHandshake();
+		} catch ( InvalidHandshakeException e ) {
+			onWebsocketError( engine, e );
+			engine.closeConnection( CloseFrame.NEVER_CONNECTED, e.getMessage() );
+		}
+	}
+
+	/**
+	 * Called by the selector loop when the connection failed
+	 */
+	void onSelectorIOException( IOException e ) {
+		if( engine.getReadyState() == ReadyState.NOT_YET_CONNECTED ) {
+			onWebsocketError( engine, e );
+		}
+		handleIOException( e );
+	}
+
+	/**
+	 * Called by the selector loop when decoding failed, which indicates a bug in this websocket implementation
+	 */
+	void onSelectorRuntimeException( RuntimeException e ) {
+		onError( e );
+		engine.closeConnection( CloseFrame.ABNORMAL_CLOSE, e.getMessage() );
+	}
+
+	WebSocketImpl getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Clears the write request flag, called by the selector loop before it flushes the outgoing queue
+	 */
+	void onSelectorWriteStarted() {
+		writeRequested.set( false );
+	}
+
 	/**
 	 * Accepts a SocketFactory.<br>
 	 * This method must be called before <code>connect</code>.
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2010-2019 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link WebSocketSelectorLoop}s, new connections are spread over them round robin.
+ * All loops share one thread for the lost connection checking. A loop whose selector failed is replaced
+ * by a new one when it is picked next.
+ */
+public class WebSocketSelectorGroup {
+
+	private static final Logger log = LoggerFactory.getLogger(WebSocketSelectorGroup.class);
+
+	private final String name;
+	private final WebSocketSelectorLoop[] loops;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicInteger next = new AtomicInteger( 0 );
+
+	private volatile boolean closed = false;
+
+	/**
+	 * @param name prefix of the names of the loop threads
+	 * @param loopCount number of selector loops
+	 * @throws IOException if a selector could not be opened
+	 */
+	public WebSocketSelectorGroup( final String name, int loopCount ) throws IOException {
+		if( loopCount < 1 ) {
+			throw new IllegalArgumentException( "loopCount must be positive number" );
+		}
+		this.name = name;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable r ) {
+				Thread thread = new Thread( r, name + "-connectionLostChecker" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+		this.loops = new WebSocketSelectorLoop[loopCount];
+		for( int i = 0; i < loopCount; i++ ) {
+			loops[i] = new WebSocketSelectorLoop( name + "-" + i, scheduler );
+		}
+	}
+
+	/**
+	 * @return the loop for the next connection
+	 */
+	public WebSocketSelectorLoop next() {
+		int start = next.getAndIncrement() & 0x7FFFFFFF;
+		for( int i = 0; i < loops.length; i++ ) {
+			WebSocketSelectorLoop loop = running( ( start + i ) % loops.length );
+			if( loop != null ) {
+				return loop;
+			}
+		}
+		// No loop can be started, the registration on a stopped loop fails the connection right away
+		return loops[start % loops.length];
+	}
+
+	/**
+	 * @return the loop at the index, replaced by a new one if it has stopped, or null if it can't be replaced
+	 */
+	private WebSocketSelectorLoop running( int index ) {
+		WebSocketSelectorLoop loop = loops[index];
+		if( loop.isRunning() ) {
+			return loop;
+		}
+		synchronized( loops ) {
+			loop = loops[index];
+			if( loop.isRunning() ) {
+				return loop;
+			}
+			if( closed ) {
+				return null;
+			}
+			try {
+				loop = new WebSocketSelectorLoop( name + "-" + index, scheduler );
+			} catch ( IOException e ) {
+				log.error( "Selector loop could not be restarted", e );
+				return null;
+			}
+			loops[index] = loop;
+			return loop;
+		}
+	}
+
+	public int getLoopCount() {
+		return loops.length;
+	}
+
+	/**
+	 * Stops all loops, connections which are still open are closed
+	 */
+	public void close() {
+		synchronized( loops ) {
+			closed = true;
+			for( WebSocketSelectorLoop loop : loops ) {
+				loop.close();
+			}
+		}
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2010-2019 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import org.java_websocket.SocketChannelIOHelper;
+import org.java_websocket.WebSocketImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A single thread serving many {@link WebSocketClient}s through one NIO selector.<br>
+ * The framing and the state machine of the connections stay in {@link WebSocketImpl}, the loop only moves the bytes.
+ * Outgoing frames are written with gathering writes, incoming data are decoded on the loop thread,
+ * so the listeners of the served clients must never block. Listeners which can't keep up should hand the messages
+ * off and stop reading by {@link WebSocketClient#pauseReading()} until they catch up.
+ */
+public class WebSocketSelectorLoop implements Runnable {
+
+	private static final Logger log = LoggerFactory.getLogger(WebSocketSelectorLoop.class);
+
+	/**
+	 * Maximum number of queued frames written by one gathering write
+	 */
+	private static final int MAX_GATHERED_FRAMES = 64;
+
+	/**
+	 * Maximum number of reads from one channel in a row, so that a busy connection doesn't starve the others
+	 */
+	private static final int MAX_READS_IN_ROW = 16;
+
+	private final Selector selector;
+	private final Thread thread;
+	private final ScheduledExecutorService scheduler;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	private final ByteBuffer readBuffer = ByteBuffer.allocate( WebSocketImpl.RCVBUF );
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHERED_FRAMES];
+
+	private volatile boolean running = true;
+
+	/**
+	 * Opens the selector and starts the loop thread
+	 * @param name the name of the loop thread
+	 * @param scheduler the service used for lost connection checking of the served clients
+	 * @throws IOException if the selector could not be opened
+	 */
+	public WebSocketSelectorLoop( String name, ScheduledExecutorService scheduler ) throws IOException {
+		this.selector = Selector.open();
+		this.scheduler = scheduler;
+		this.thread = new Thread( this, name );
+		this.thread.setDaemon( true );
+		this.thread.start();
+	}
+
+	ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Starts serving a channel, on which connect has already been called
+	 */
+	void register( final WebSocketClient client, final SocketChannel channel, final boolean connected ) {
+		execute( new Registration( client, channel, connected ) );
+	}
+
+	/**
+	 * Registration of a channel, the client learns about it also when the loop died before the registration ran
+	 */
+	private final class Registration implements Runnable {
+		private final WebSocketClient client;
+		private final SocketChannel channel;
+		private final boolean connected;
+
+		Registration( WebSocketClient client, SocketChannel channel, boolean connected ) {
+			this.client = client;
+			this.channel = channel;
+			this.connected = connected;
+		}
+
+		@Override
+		public void run() {
+			try {
+				SelectionKey key = channel.register( selector, connected ? interestOps( client, false ) : SelectionKey.OP_CONNECT, client );
+				client.getEngine().setSelectionKey( key );
+				if( connected ) {
+					client.onSelectorConnected();
+				}
+			} catch ( ClosedChannelException e ) {
+				client.onSelectorIOException( e );
+			}
+		}
+
+		void fail( IOException e ) {
+			try {
+				channel.close();
+			} catch ( IOException ex ) {
+				log.trace( "Exception during channel.close()", ex );
+			}
+			client.onSelectorIOException( e );
+		}
+	}
+
+	/**
+	 * Flushes the outgoing queue of the client on the loop thread
+	 */
+	void requestWrite( final WebSocketClient client ) {
+		execute( new Runnable() {
+			@Override
+			public void run() {
+				client.onSelectorWriteStarted();
+				SelectionKey key = client.getEngine().getSelectionKey();
+				if( key != null && key.isValid() ) {
+					write( key, client );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Applies {@link WebSocketClient#isReadPaused()} of the client on the loop thread.
+	 * The flag is read when the task runs, so the last of concurrent pause and resume requests wins
+	 */
+	void updateReadInterest( final WebSocketClient client ) {
+		execute( new Runnable() {
+			@Override
+			public void run() {
+				SelectionKey key = client.getEngine().getSelectionKey();
+				if( key != null && key.isValid() ) {
+					key.interestOps( interestOps( client, ( key.interestOps() & SelectionKey.OP_WRITE ) != 0 ) );
+				}
+			}
+		} );
+	}
+
+	private static int interestOps( WebSocketClient client, boolean writing ) {
+		int ops = client.isReadPaused() ? 0 : SelectionKey.OP_READ;
+		return writing ? ops | SelectionKey.OP_WRITE : ops;
+	}
+
+	private void execute( Runnable task ) {
+		tasks.add( task );
+		if( !running ) {
+			// The loop has stopped and won't run the task, it might have already drained the queue
+			failTasks();
+		} else if( Thread.currentThread() != thread ) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Fails the queued registrations, the other tasks are dropped as their clients are closed with the selector
+	 */
+	private void failTasks() {
+		IOException closed = new IOException( "Selector loop closed" );
+		Runnable task;
+		while( ( task = tasks.poll() ) != null ) {
+			if( task instanceof Registration ) {
+				( ( Registration ) task ).fail( closed );
+			}
+		}
+	}
+
+	/**
+	 * @return false when the loop has been closed or its selector failed, such loop doesn't serve any connections
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public void run() {
+		try {
+			loop();
+		} finally {
+			running = false;
+			for( SelectionKey key : selector.keys() ) {
+				WebSocketClient client = ( WebSocketClient ) key.attachment();
+				client.onSelectorIOException( new IOException( "Selector loop closed" ) );
+			}
+			try {
+				selector.close();
+			} catch ( IOException e ) {
+				log.trace( "Exception during selector.close()", e );
+			}
+			failTasks();
+		}
+	}
+
+	private void loop() {
+		while( running ) {
+			try {
+				// Tasks queued by the loop thread itself don't wake the selector up
+				if( tasks.isEmpty() ) {
+					selector.select();
+				} else {
+					selector.selectNow();
+				}
+			} catch ( IOException e ) {
+				log.error( "Selector failed", e );
+				return;
+			}
+
+			Runnable task;
+			while( ( task = tasks.poll() ) != null ) {
+				try {
+					task.run();
+				} catch ( RuntimeException e ) {
+					log.error( "Selector task failed", e );
+				}
+			}
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while( keys.hasNext() ) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				WebSocketClient client = ( WebSocketClient ) key.attachment();
+				try {
+					if( key.isConnectable() ) {
+						connect( key, client );
+					} else {
+						if( key.isReadable() ) {
+							read( key, client );
+						}
+						if( key.isValid() && key.isWritable() ) {
+							write( key, client );
+						}
+					}
+				} catch ( CancelledKeyException e ) {
+					// the connection has been closed meanwhile
+				} catch ( RuntimeException e ) {
+					client.onSelectorRuntimeException( e );
+				}
+			}
+		}
+	}
+
+	private void connect( SelectionKey key, WebSocketClient client ) {
+		try {
+			if( ( ( SocketChannel ) key.channel() ).finishConnect() ) {
+				key.interestOps( interestOps( client, false ) );
+				client.onSelectorConnected();
+			}
+		} catch ( IOException e ) {
+			key.cancel();
+			client.onSelectorIOException( e );
+		}
+	}
+
+	private void read( SelectionKey key, WebSocketClient client ) {
+		WebSocketImpl engine = client.getEngine();
+		SocketChannel channel = ( SocketChannel ) key.channel();
+		try {
+			for( int i = 0; i < MAX_READS_IN_ROW && key.isValid() && !client.isReadPaused(); i++ ) {
+				if( !SocketChannelIOHelper.read( readBuffer, engine, channel ) ) {
+					break;
+				}
+				boolean full = readBuffer.remaining() == readBuffer.capacity();
+				engine.decode( readBuffer );
+				if( !full ) {
+					break;
+				}
+			}
+		} catch ( IOException e ) {
+			key.cancel();
+			client.onSelectorIOException( e );
+		}
+	}
+
+	private void write( SelectionKey key, WebSocketClient client ) {
+		WebSocketImpl engine = client.getEngine();
+		SocketChannel channel = ( SocketChannel ) key.channel();
+		try {
+			boolean flushed = flush( engine, channel );
+			key.interestOps( interestOps( client, !flushed ) );
+		} catch ( CancelledKeyException e ) {
+			// the connection has been closed meanwhile
+		} catch ( IOException e ) {
+			key.cancel();
+			client.onSelectorIOException( e );
+		}
+	}
+
+	/**
+	 * Writes as much of the outgoing queue as the channel accepts
+	 * @return whether the whole queue has been written
+	 */
+	private boolean flush( WebSocketImpl engine, SocketChannel channel ) throws IOException {
+		try {
+			while( true ) {
+				int count = 0;
+				for( ByteBuffer buffer : engine.outQueue ) {
+					gather[count++] = buffer;
+					if( count == gather.length ) {
+						break;
+					}
+				}
+				if( count == 0 ) {
+					return true;
+				}
+
+				channel.write( gather, 0, count );
+				for( int i = 0; i < count; i++ ) {
+					if( gather[i].hasRemaining() ) {
+						return false;
+					}
+					engine.outQueue.poll();
+				}
+			}
+		} finally {
+			Arrays.fill( gather, null );
+		}
+	}
+
+	/**
+	 * Stops the loop, connections which are still open are closed
+	 */
+	public void close() {
+		running = false;
+		selector.wakeup();
+	}
+}
@@ -35,6 +35,8 @@ import org.java_websocket.handshake.*;
 import org.java_websocket.protocols.IProtocol;
 import org.java_websocket.protocols.Protocol;
 import org.java_websocket.util.Base64;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.ByteBufferUtils;
 import org.java_websocket.util.Charsetfunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -120,10 +122,20 @@ public class Draft_6455 extends Draft {
 	private final List<ByteBuffer> byteBufferList;
 
 	/**
-	 * Attribute for the current incomplete frame
+	 * Number of payloads ever added to the byteBufferList, tells whether the list took over a payload
+	 */
+	private long bufferedPayloads;
+
+	/**
+	 * Attribute for the current incomplete frame header
 	 */
 	private ByteBuffer incompleteframe;
 
+	/**
+	 * Attribute for the current frame, whose header is complete but its payload not yet
+	 */
+	private PartialFrame partialframe;
+
 	/**
 	 * Attribute for the reusable random instance
 	 */
@@ -416,7 +428,7 @@ public class Draft_6455 extends Draft {
 	public ByteBuffer createBinaryFrame(Framedata framedata ) {
 		getExtension().encodeFrame( framedata );
 		if (log.isTraceEnabled())
-			log.trace( "afterEnconding({}): {}" , framedata.getPayloadData().remaining(), ( framedata.getPayloadData().remaining() > 1000 ? "too big to display" : new String( framedata.getPayloadData().array() ) ) );
+			log.trace( "afterEnconding({}): {}" , framedata.getPayloadData().remaining(), ( framedata.getPayloadData().remaining() > 1000 ? "too big to display" : !framedata.getPayloadData().hasArray() ? "not displayable" : new String( framedata.getPayloadData().array(), framedata.getPayloadData().arrayOffset() + framedata.getPayloadData().position(), framedata.getPayloadData().remaining() ) ) );
 		return createByteBufferFromFramedata( framedata );
 	}
 
@@ -427,6 +439,7 @@ public class Draft_6455 extends Draft {
 		ByteBuffer buf = ByteBuffer.allocate( 1 + ( sizebytes > 1 ? sizebytes + 1 : sizebytes ) + ( mask ? 4 : 0 ) + mes.remaining() );
 		byte optcode = fromOpcode( framedata.getOpcode() );
 		byte one = ( byte ) ( framedata.isFin() ? -128 : 0 );
+		one |= getRSVByte( framedata );
 		one |= optcode;
 		buf.put( one );
 		byte[] payloadlengthbytes = toByteArray( mes.remaining(), sizebytes );
@@ -444,12 +457,9 @@ public class Draft_6455 extends Draft {
 			throw new IllegalStateException("Size representation not supported/specified");
 		}
 		if( mask ) {
-			ByteBuffer maskkey = ByteBuffer.allocate( 4 );
-			maskkey.putInt( reuseableRandom.nextInt() );
-			buf.put( maskkey.array() );
-			for( int i = 0; mes.hasRemaining(); i++ ) {
-				buf.put( ( byte ) ( mes.get() ^ maskkey.get( i % 4 ) ) );
-			}
+			int maskkey = reuseableRandom.nextInt();
+			buf.putInt( maskkey );
+			ByteBufferUtils.mask( mes, buf, maskkey, mes.remaining() );
 		} else {
 			buf.put( mes );
 			//Reset the position of the bytebuffer e.g. for additional use
@@ -460,6 +470,32 @@ public class Draft_6455 extends Draft {
 		return buf;
 	}
 
+	/**
+	 * Get the RSV bits of the first byte of the frame, which are set by the extension
+	 * @param framedata the frame
+	 * @return the RSV bits
+	 */
+	private byte getRSVByte( Framedata framedata ) {
+		byte rsv = 0;
+		if( framedata.isRSV1() ) {
+			rsv |= 0x40;
+		}
+		if( framedata.isRSV2() ) {
+			rsv |= 0x20;
+		}
+		if( framedata.isRSV3() ) {
+			rsv |= 0x10;
+		}
+		return rsv;
+	}
+
+	/**
+	 * Translates one frame from the buffer, a frame whose payload is split over several reads is kept as the partial frame
+	 * @param buffer the received data, starting with a frame header
+	 * @return the frame, or null if its payload is not complete yet
+	 * @throws IncompleteException if the frame header is not complete
+	 * @throws InvalidDataException if the frame is not valid
+	 */
 	private Framedata translateSingleFrame( ByteBuffer buffer ) throws IncompleteException, InvalidDataException {
 		if (buffer == null)
 			throw new IllegalArgumentException();
@@ -483,36 +519,102 @@ public class Draft_6455 extends Draft {
 		}
 		translateSingleFrameCheckLengthLimit(payloadlength);
 		realpacketsize += ( mask ? 4 : 0 );
-		realpacketsize += payloadlength;
 		translateSingleFrameCheckPacketSize(maxpacketsize, realpacketsize);
+		int maskskey = mask ? buffer.getInt() : 0;
+
+		// Payloads of whole binary messages may be kept by the listener, so they are allocated at their exact size
+		boolean handedOff = optcode == Opcode.BINARY && fin && !rsv1;
+		ByteBuffer payload = handedOff ? ByteBuffer.allocate( checkAlloc( payloadlength ) ) : ByteBufferPool.SHARED.acquire( checkAlloc( payloadlength ) );
+		PartialFrame partial = new PartialFrame( optcode, fin, rsv1, rsv2, rsv3, mask, maskskey, payload );
+		if( !partial.fill( buffer ) ) {
+			// The rest of the payload is decoded straight into it as it arrives
+			partialframe = partial;
+			return null;
+		}
+		return completeFrame( partial );
+	}
 
-		ByteBuffer payload = ByteBuffer.allocate( checkAlloc( payloadlength ) );
-		if( mask ) {
-			byte[] maskskey = new byte[4];
-			buffer.get( maskskey );
-			for( int i = 0; i < payloadlength; i++ ) {
-				payload.put( ( byte ) ( buffer.get( /*payloadstart + i*/ ) ^ maskskey[i % 4] ) );
+	/**
+	 * Validates and decodes a frame whose payload is complete, the payload is released if the frame is invalid
+	 * @param partial the header and the payload of the frame
+	 * @return the frame
+	 * @throws InvalidDataException if the frame is not valid
+	 */
+	private Framedata completeFrame( PartialFrame partial ) throws InvalidDataException {
+		ByteBuffer payload = partial.payload;
+		FramedataImpl1 frame = null;
+		boolean valid = false;
+		try {
+			frame = FramedataImpl1.get( partial.optcode );
+			frame.setFin( partial.fin );
+			frame.setRSV1( partial.rsv1 );
+			frame.setRSV2( partial.rsv2 );
+			frame.setRSV3( partial.rsv3 );
+			payload.flip();
+			frame.setPayload( payload );
+			if( frame.getPayloadData() != payload ) {
+				// Close frames parse the payload into their own buffer
+				ByteBufferPool.SHARED.release( payload );
+			}
+			getExtension().isFrameValid(frame);
+			getExtension().decodeFrame(frame);
+			if (log.isTraceEnabled()) {
+				ByteBuffer decoded = frame.getPayloadData();
+				log.trace( "afterDecoding({}): {}", decoded.remaining(), ( decoded.remaining() > 1000 ? "too big to display" : !decoded.hasArray() ? "not displayable" : new String( decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining() ) ) );
+			}
+			frame.isValid();
+			valid = true;
+		} finally {
+			if( !valid ) {
+				// The extension releases what it replaced, so only the current payload is still owned by the frame
+				ByteBufferPool.SHARED.release( frame != null ? frame.getPayloadData() : payload );
 			}
-		} else {
-			payload.put( buffer.array(), buffer.position(), payload.limit() );
-			buffer.position( buffer.position() + payload.limit() );
 		}
-
-		FramedataImpl1 frame = FramedataImpl1.get( optcode );
-		frame.setFin( fin );
-		frame.setRSV1( rsv1 );
-		frame.setRSV2( rsv2 );
-		frame.setRSV3( rsv3 );
-		payload.flip();
-		frame.setPayload( payload );
-		getExtension().isFrameValid(frame);
-		getExtension().decodeFrame(frame);
-		if (log.isTraceEnabled())
-			log.trace( "afterDecoding({}): {}", frame.getPayloadData().remaining(), ( frame.getPayloadData().remaining() > 1000 ? "too big to display" : new String( frame.getPayloadData().array() ) ) );
-		frame.isValid();
 		return frame;
 	}
 
+	/**
+	 * A frame whose header has been read, its payload is unmasked into the payload buffer as the bytes arrive
+	 */
+	private static final class PartialFrame {
+		private final Opcode optcode;
+		private final boolean fin;
+		private final boolean rsv1;
+		private final boolean rsv2;
+		private final boolean rsv3;
+		private final boolean mask;
+		private final int maskKey;
+		private final ByteBuffer payload;
+
+		PartialFrame( Opcode optcode, boolean fin, boolean rsv1, boolean rsv2, boolean rsv3, boolean mask, int maskKey, ByteBuffer payload ) {
+			this.optcode = optcode;
+			this.fin = fin;
+			this.rsv1 = rsv1;
+			this.rsv2 = rsv2;
+			this.rsv3 = rsv3;
+			this.mask = mask;
+			this.maskKey = maskKey;
+			this.payload = payload;
+		}
+
+		/**
+		 * Moves as much of the payload as available from the buffer
+		 * @param buffer the received data
+		 * @return true if the payload is complete
+		 */
+		boolean fill( ByteBuffer buffer ) {
+			int length = Math.min( buffer.remaining(), payload.remaining() );
+			if( mask ) {
+				// The key continues at the byte it stopped at
+				ByteBufferUtils.mask( buffer, payload, Integer.rotateLeft( maskKey, 8 * ( payload.position() & 3 ) ), length );
+			} else {
+				payload.put( buffer.array(), buffer.arrayOffset() + buffer.position(), length );
+				buffer.position( buffer.position() + length );
+			}
+			return !payload.hasRemaining();
+		}
+	}
+
     /**
      * Translate the buffer depending when it has an extended payload length (126 or 127)
      * @param buffer the buffer to read from
@@ -611,11 +713,36 @@ public class Draft_6455 extends Draft {
 
 	@Override
 	public List<Framedata> translateFrame(ByteBuffer buffer ) throws InvalidDataException {
+		List<Framedata> frames = new LinkedList<Framedata>();
+		boolean translated = false;
+		try {
+			frames = translateFrames( buffer, frames );
+			translated = true;
+			return frames;
+		} finally {
+			if( !translated ) {
+				// Frames decoded before the invalid one are never processed
+				for( Framedata frame : frames ) {
+					ByteBufferPool.SHARED.release( frame.getPayloadData() );
+				}
+			}
+		}
+	}
+
+	private List<Framedata> translateFrames( ByteBuffer buffer, List<Framedata> frames ) throws InvalidDataException {
 		while( true ) {
-			List<Framedata> frames = new LinkedList<Framedata>();
 			Framedata cur;
+			if( partialframe != null ) {
+				// continue the payload of a split frame
+				if( !partialframe.fill( buffer ) ) {
+					return frames;
+				}
+				PartialFrame complete = partialframe;
+				partialframe = null;
+				frames.add( completeFrame( complete ) );
+			}
 			if( incompleteframe != null ) {
-				// complete an incomplete frame
+				// complete an incomplete frame header
 				try {
 					buffer.mark();
 					int availableNextByteCount = buffer.remaining();// The number of bytes received
@@ -625,19 +752,25 @@ public class Draft_6455 extends Draft {
 						// did not receive enough bytes to complete the frame
 						incompleteframe.put( buffer.array(), buffer.position(), availableNextByteCount );
 						buffer.position( buffer.position() + availableNextByteCount );
-						return Collections.emptyList();
+						return frames;
 					}
 					incompleteframe.put( buffer.array(), buffer.position(), expectedNextByteCount );
 					buffer.position( buffer.position() + expectedNextByteCount );
 					cur = translateSingleFrame( (ByteBuffer) incompleteframe.duplicate().position( 0 ) );
-					frames.add( cur );
+					ByteBufferPool.SHARED.release( incompleteframe );
 					incompleteframe = null;
+					if( cur == null ) {
+						// the header is complete, its payload follows in the buffer
+						continue;
+					}
+					frames.add( cur );
 				} catch ( IncompleteException e ) {
 					// extending as much as suggested
-					ByteBuffer extendedframe = ByteBuffer.allocate( checkAlloc( e.getPreferredSize() ) );
+					ByteBuffer extendedframe = ByteBufferPool.SHARED.acquire( checkAlloc( e.getPreferredSize() ) );
 					assert ( extendedframe.limit() > incompleteframe.limit() );
 					incompleteframe.rewind();
 					extendedframe.put( incompleteframe );
+					ByteBufferPool.SHARED.release( incompleteframe );
 					incompleteframe = extendedframe;
 					continue;
 				}
@@ -647,12 +780,16 @@ public class Draft_6455 extends Draft {
 				buffer.mark();
 				try {
 					cur = translateSingleFrame( buffer );
+					if( cur == null ) {
+						// the rest of the buffer went into the payload of a split frame
+						break;
+					}
 					frames.add( cur );
 				} catch ( IncompleteException e ) {
-					// remember the incomplete data
+					// remember the incomplete header
 					buffer.reset();
 					int pref = e.getPreferredSize();
-					incompleteframe = ByteBuffer.allocate( checkAlloc( pref ) );
+					incompleteframe = ByteBufferPool.SHARED.acquire( checkAlloc( pref ) );
 					incompleteframe.put( buffer );
 					break;
 				}
@@ -689,7 +826,14 @@ public class Draft_6455 extends Draft {
 
 	@Override
 	public void reset() {
+		ByteBufferPool.SHARED.release( incompleteframe );
 		incompleteframe = null;
+		if( partialframe != null ) {
+			ByteBufferPool.SHARED.release( partialframe.payload );
+			partialframe = null;
+		}
+		currentContinuousFrame = null;
+		clearBufferList();
 		if( extension != null ) {
 			extension.reset();
 		}
@@ -777,6 +921,19 @@ public class Draft_6455 extends Draft {
 	@Override
 	public void processFrame( WebSocketImpl webSocketImpl, Framedata frame ) throws InvalidDataException {
 		Opcode curop = frame.getOpcode();
+		ByteBuffer payload = frame.getPayloadData();
+		long buffered = bufferedPayloads;
+		try {
+			processFrameByOpcode( webSocketImpl, frame, curop );
+		} finally {
+			// Payloads of fragments added to the buffer list are released with it, rejected ones are released here
+			if( bufferedPayloads == buffered ) {
+				ByteBufferPool.SHARED.release( payload );
+			}
+		}
+	}
+
+	private void processFrameByOpcode( WebSocketImpl webSocketImpl, Framedata frame, Opcode curop ) throws InvalidDataException {
 		if( curop == Opcode.CLOSING ) {
 			processFrameClosing(webSocketImpl, frame);
 		} else if( curop == Opcode.PING ) {
@@ -836,12 +993,27 @@ public class Draft_6455 extends Draft {
 	 */
 	private void processFrameBinary(WebSocketImpl webSocketImpl, Framedata frame) {
 		try {
-			webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, frame.getPayloadData() );
+			webSocketImpl.getWebSocketListener().onWebsocketMessageOwned( webSocketImpl, unpooled( frame.getPayloadData() ) );
 		} catch ( RuntimeException e ) {
 			logRuntimeException(webSocketImpl, e);
 		}
 	}
 
+	/**
+	 * Binary payloads may be kept by the listener, so a pooled one (e.g. inflated) is copied at its exact size
+	 * @param payload the payload of the frame
+	 * @return the payload itself, if it is not pooled
+	 */
+	private static ByteBuffer unpooled( ByteBuffer payload ) {
+		if( !ByteBufferPool.SHARED.isAcquired( payload ) ) {
+			return payload;
+		}
+		ByteBuffer copy = ByteBuffer.allocate( payload.remaining() );
+		copy.put( payload.duplicate() );
+		copy.flip();
+		return copy;
+	}
+
 	/**
 	 * Log the runtime exception to the specific WebSocketImpl
 	 * @param webSocketImpl the implementation of the websocket
@@ -879,18 +1051,24 @@ public class Draft_6455 extends Draft {
 		addToBufferList(frame.getPayloadData());
 		checkBufferLimit();
 		if( currentContinuousFrame.getOpcode() == Opcode.TEXT ) {
-			((FramedataImpl1) currentContinuousFrame).setPayload( getPayloadFromByteBufferList() );
-			((FramedataImpl1) currentContinuousFrame).isValid();
+			ByteBuffer payload = getPayloadFromByteBufferList( true );
 			try {
-				webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, Charsetfunctions.stringUtf8( currentContinuousFrame.getPayloadData() ) );
-			} catch ( RuntimeException e ) {
-				logRuntimeException(webSocketImpl, e);
+				((FramedataImpl1) currentContinuousFrame).setPayload( payload );
+				((FramedataImpl1) currentContinuousFrame).isValid();
+				try {
+					webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, Charsetfunctions.stringUtf8( currentContinuousFrame.getPayloadData() ) );
+				} catch ( RuntimeException e ) {
+					logRuntimeException(webSocketImpl, e);
+				}
+			} finally {
+				ByteBufferPool.SHARED.release( payload );
 			}
 		} else if( currentContinuousFrame.getOpcode() == Opcode.BINARY ) {
-			((FramedataImpl1) currentContinuousFrame).setPayload( getPayloadFromByteBufferList() );
+			ByteBuffer payload = getPayloadFromByteBufferList( false );
+			((FramedataImpl1) currentContinuousFrame).setPayload( payload );
 			((FramedataImpl1) currentContinuousFrame).isValid();
 			try {
-				webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, currentContinuousFrame.getPayloadData() );
+				webSocketImpl.getWebSocketListener().onWebsocketMessageOwned( webSocketImpl, currentContinuousFrame.getPayloadData() );
 			} catch ( RuntimeException e ) {
 				logRuntimeException(webSocketImpl, e);
 			}
@@ -944,6 +1122,9 @@ public class Draft_6455 extends Draft {
 	 */
 	private void clearBufferList() {
 		synchronized (byteBufferList) {
+			for (ByteBuffer buffer : byteBufferList) {
+				ByteBufferPool.SHARED.release( buffer );
+			}
 			byteBufferList.clear();
 		}
 	}
@@ -955,6 +1136,7 @@ public class Draft_6455 extends Draft {
 	private void addToBufferList(ByteBuffer payloadData) {
 		synchronized (byteBufferList) {
 			byteBufferList.add(payloadData);
+			bufferedPayloads++;
 		}
 	}
 
@@ -1009,10 +1191,11 @@ public class Draft_6455 extends Draft {
 
 	/**
 	 * Method to generate a full bytebuffer out of all the fragmented frame payload
+	 * @param pooled whether the bytebuffer is taken from the pool, otherwise it is allocated at the exact size
 	 * @return a bytebuffer containing all the data
 	 * @throws LimitExceededException will be thrown when the totalSize is bigger then Integer.MAX_VALUE due to not being able to allocate more
 	 */
-	private ByteBuffer getPayloadFromByteBufferList() throws LimitExceededException {
+	private ByteBuffer getPayloadFromByteBufferList( boolean pooled ) throws LimitExceededException {
 		long totalSize = 0;
 		ByteBuffer resultingByteBuffer;
 		synchronized (byteBufferList) {
@@ -1020,7 +1203,7 @@ public class Draft_6455 extends Draft {
 				totalSize += buffer.limit();
 			}
 			checkBufferLimit();
-			resultingByteBuffer = ByteBuffer.allocate( (int) totalSize );
+			resultingByteBuffer = pooled ? ByteBufferPool.SHARED.acquire( (int) totalSize ) : ByteBuffer.allocate( (int) totalSize );
 			for (ByteBuffer buffer : byteBufferList) {
 				resultingByteBuffer.put( buffer );
 			}
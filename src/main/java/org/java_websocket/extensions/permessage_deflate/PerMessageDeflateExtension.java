@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2010-2019 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.extensions.permessage_deflate;
+
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.exceptions.LimitExceededException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.util.ByteBufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The permessage-deflate extension specified by https://tools.ietf.org/html/rfc7692<br>
+ * Messages smaller than the compression threshold are sent uncompressed, received messages are always inflated when the other endpoint compressed them.
+ * Fragmented messages are sent uncompressed.<br>
+ * java.util.zip always deflates with a 32KB window, so the window of the other endpoint can be limited by server_max_window_bits,
+ * but client_max_window_bits is never offered and a response limiting our own window is refused.
+ */
+public class PerMessageDeflateExtension extends CompressionExtension {
+
+	private static final String EXTENSION_REGISTERED_NAME = "permessage-deflate";
+	private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+	private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+	private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+	private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+	/**
+	 * Smallest window allowed by the specification
+	 */
+	public static final int MIN_WINDOW_BITS = 8;
+
+	/**
+	 * Largest window allowed by the specification, also the window used by java.util.zip
+	 */
+	public static final int MAX_WINDOW_BITS = 15;
+
+	/**
+	 * Messages with less bytes are sent uncompressed by default
+	 */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 64;
+
+	/**
+	 * Received messages inflating to more bytes are refused by default, so that a small message cannot exhaust the memory
+	 */
+	public static final int DEFAULT_MAX_INFLATED_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The tail of every flushed deflate block, which is removed from the sent messages
+	 */
+	private static final byte[] TAIL = { 0x00, 0x00, ( byte ) 0xFF, ( byte ) 0xFF };
+
+	private int serverMaxWindowBits = MAX_WINDOW_BITS;
+	private boolean serverNoContextTakeover = false;
+	private boolean clientNoContextTakeover = false;
+	private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private boolean compressBinaryFrames = true;
+	private int maxInflatedSize = DEFAULT_MAX_INFLATED_SIZE;
+
+	/**
+	 * Negotiated parameters, the deflater belongs to this endpoint, the inflater to the other one
+	 */
+	private boolean deflaterNoContextTakeover = false;
+	private boolean inflaterNoContextTakeover = false;
+	private String responseAsServer = "";
+
+	private Deflater deflater;
+	private Inflater inflater;
+	private byte[] deflated = new byte[8192];
+	private byte[] deflaterInput;
+
+	/**
+	 * Whether the fragments of the currently received message have to be inflated
+	 */
+	private boolean inflating = false;
+
+	/**
+	 * Inflated bytes of the previous fragments of the currently received message
+	 */
+	private int inflatedMessageSize = 0;
+
+	/**
+	 * Limit the window the server uses to compress its messages
+	 *
+	 * @param serverMaxWindowBits log2 of the window size, between 8 and 15
+	 */
+	public void setServerMaxWindowBits( int serverMaxWindowBits ) {
+		if( serverMaxWindowBits < MIN_WINDOW_BITS || serverMaxWindowBits > MAX_WINDOW_BITS ) {
+			throw new IllegalArgumentException( "Window bits must be between " + MIN_WINDOW_BITS + " and " + MAX_WINDOW_BITS );
+		}
+		this.serverMaxWindowBits = serverMaxWindowBits;
+	}
+
+	public int getServerMaxWindowBits() {
+		return serverMaxWindowBits;
+	}
+
+	/**
+	 * Request the server to compress every message on its own, which saves its memory at the cost of the ratio
+	 *
+	 * @param serverNoContextTakeover true, if the server should not reuse the window between messages
+	 */
+	public void setServerNoContextTakeover( boolean serverNoContextTakeover ) {
+		this.serverNoContextTakeover = serverNoContextTakeover;
+	}
+
+	public boolean isServerNoContextTakeover() {
+		return serverNoContextTakeover;
+	}
+
+	/**
+	 * Compress every message of the client on its own. Messages which would not get smaller are then sent uncompressed
+	 *
+	 * @param clientNoContextTakeover true, if the client should not reuse the window between messages
+	 */
+	public void setClientNoContextTakeover( boolean clientNoContextTakeover ) {
+		this.clientNoContextTakeover = clientNoContextTakeover;
+	}
+
+	public boolean isClientNoContextTakeover() {
+		return clientNoContextTakeover;
+	}
+
+	/**
+	 * Messages with payload smaller than the threshold are sent uncompressed
+	 *
+	 * @param compressionThreshold the size in bytes, 0 to compress everything
+	 */
+	public void setCompressionThreshold( int compressionThreshold ) {
+		if( compressionThreshold < 0 ) {
+			throw new IllegalArgumentException( "Threshold cannot be negative" );
+		}
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * @param compressionLevel the level of the deflater, see {@link Deflater#setLevel(int)}
+	 */
+	public void setCompressionLevel( int compressionLevel ) {
+		if( compressionLevel != Deflater.DEFAULT_COMPRESSION && ( compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION ) ) {
+			throw new IllegalArgumentException( "Invalid compression level: " + compressionLevel );
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Binary payloads which are already compressed or encrypted only cost time to deflate, those can be sent as they are
+	 *
+	 * @param compressBinaryFrames false, if only text messages should be compressed
+	 */
+	public void setCompressBinaryFrames( boolean compressBinaryFrames ) {
+		this.compressBinaryFrames = compressBinaryFrames;
+	}
+
+	public boolean isCompressBinaryFrames() {
+		return compressBinaryFrames;
+	}
+
+	/**
+	 * Received messages which inflate to more bytes fail with {@link CloseFrame#TOOBIG}
+	 *
+	 * @param maxInflatedSize the maximum size of an inflated message, all fragments together
+	 */
+	public void setMaxInflatedSize( int maxInflatedSize ) {
+		if( maxInflatedSize < 1 ) {
+			throw new IllegalArgumentException( "Maximum inflated size must be positive number" );
+		}
+		this.maxInflatedSize = maxInflatedSize;
+	}
+
+	public int getMaxInflatedSize() {
+		return maxInflatedSize;
+	}
+
+	@Override
+	public void isFrameValid( Framedata inputFrame ) throws InvalidDataException {
+		if( inputFrame.getOpcode() == Opcode.CONTINUOUS && inputFrame.isRSV1() ) {
+			throw new InvalidFrameException( "RSV1 bit can only be set on the first frame of a message" );
+		}
+		super.isFrameValid( inputFrame );
+	}
+
+	@Override
+	public void decodeFrame( Framedata inputFrame ) throws InvalidDataException {
+		if( !( inputFrame instanceof DataFrame ) ) {
+			return;
+		}
+		if( inputFrame.getOpcode() != Opcode.CONTINUOUS ) {
+			inflating = inputFrame.isRSV1();
+			inflatedMessageSize = 0;
+		}
+		if( !inflating ) {
+			return;
+		}
+
+		// One byte over the limit is enough to tell the message is too large
+		int maxSize = maxInflatedSize - inflatedMessageSize;
+		ByteBuffer compressed = inputFrame.getPayloadData();
+		ByteBuffer payload = ByteBufferPool.SHARED.acquire( ( int ) Math.min( Math.max( 2L * compressed.remaining(), 64 ), maxSize + 1L ) );
+		payload.limit( ( int ) Math.min( payload.capacity(), maxSize + 1L ) );
+		try {
+			if( inflater == null ) {
+				inflater = new Inflater( true );
+			}
+			if( compressed.hasArray() ) {
+				payload = inflate( compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining(), payload, maxSize );
+			} else {
+				byte[] copy = new byte[compressed.remaining()];
+				compressed.duplicate().get( copy );
+				payload = inflate( copy, 0, copy.length, payload, maxSize );
+			}
+			if( inputFrame.isFin() ) {
+				payload = inflate( TAIL, 0, TAIL.length, payload, maxSize );
+			}
+		} catch ( DataFormatException e ) {
+			throw new InvalidDataException( CloseFrame.POLICY_VALIDATION, e.getMessage() );
+		}
+		inflatedMessageSize += payload.position();
+		payload.flip();
+
+		DataFrame frame = ( DataFrame ) inputFrame;
+		frame.setPayload( payload );
+		frame.setRSV1( false );
+		ByteBufferPool.SHARED.release( compressed );
+
+		if( inputFrame.isFin() ) {
+			inflating = false;
+			if( inflaterNoContextTakeover ) {
+				inflater.reset();
+			}
+		}
+	}
+
+	/**
+	 * Inflates into the payload, which is replaced by a larger one when full, but never beyond maxSize + 1 bytes.
+	 * On failure the current payload, which may be the larger one, is released
+	 *
+	 * @throws LimitExceededException if more than maxSize bytes are inflated
+	 */
+	private ByteBuffer inflate( byte[] input, int offset, int length, ByteBuffer payload, int maxSize ) throws DataFormatException, LimitExceededException {
+		inflater.setInput( input, offset, length );
+		boolean inflatedAll = false;
+		try {
+			while( true ) {
+				if( payload.position() > maxSize ) {
+					throw new LimitExceededException( "Inflated message is too big", maxInflatedSize );
+				}
+				if( !payload.hasRemaining() ) {
+					ByteBuffer larger = ByteBufferPool.SHARED.acquire( ( int ) Math.min( payload.position() * 2L, maxSize + 1L ) );
+					larger.limit( ( int ) Math.min( larger.capacity(), maxSize + 1L ) );
+					payload.flip();
+					larger.put( payload );
+					ByteBufferPool.SHARED.release( payload );
+					payload = larger;
+				}
+				int inflated = inflater.inflate( payload.array(), payload.arrayOffset() + payload.position(), payload.remaining() );
+				payload.position( payload.position() + inflated );
+				if( inflated == 0 && ( inflater.needsInput() || inflater.finished() ) ) {
+					inflatedAll = true;
+					return payload;
+				}
+				if( inflater.needsDictionary() ) {
+					throw new DataFormatException( "Preset dictionary not supported" );
+				}
+			}
+		} finally {
+			if( !inflatedAll ) {
+				ByteBufferPool.SHARED.release( payload );
+			}
+		}
+	}
+
+	@Override
+	public void encodeFrame( Framedata inputFrame ) {
+		if( !( inputFrame instanceof DataFrame ) || inputFrame.getOpcode() == Opcode.CONTINUOUS || !inputFrame.isFin() || inputFrame.isRSV1() ) {
+			return;
+		}
+		if( inputFrame.getOpcode() == Opcode.BINARY && !compressBinaryFrames ) {
+			return;
+		}
+		ByteBuffer payload = inputFrame.getPayloadData();
+		int length = payload.remaining();
+		if( length < compressionThreshold ) {
+			return;
+		}
+
+		if( deflater == null ) {
+			deflater = new Deflater( compressionLevel, true );
+		}
+		int size = 0;
+		if( payload.hasArray() ) {
+			deflater.setInput( payload.array(), payload.arrayOffset() + payload.position(), length );
+			size = deflate( Deflater.NO_FLUSH, size );
+		} else {
+			if( deflaterInput == null ) {
+				deflaterInput = new byte[8192];
+			}
+			ByteBuffer source = payload.duplicate();
+			while( source.hasRemaining() ) {
+				int chunk = Math.min( source.remaining(), deflaterInput.length );
+				source.get( deflaterInput, 0, chunk );
+				deflater.setInput( deflaterInput, 0, chunk );
+				size = deflate( Deflater.NO_FLUSH, size );
+			}
+		}
+		size = deflate( Deflater.SYNC_FLUSH, size );
+		if( size >= TAIL.length && deflated[size - 4] == TAIL[0] && deflated[size - 3] == TAIL[1] && deflated[size - 2] == TAIL[2] && deflated[size - 1] == TAIL[3] ) {
+			size -= TAIL.length;
+		}
+
+		if( deflaterNoContextTakeover ) {
+			deflater.reset();
+			// Without a shared window the message can be sent as it is, if it did not get smaller
+			if( size >= length ) {
+				return;
+			}
+		}
+		DataFrame frame = ( DataFrame ) inputFrame;
+		frame.setPayload( ByteBuffer.wrap( Arrays.copyOf( deflated, size ) ) );
+		frame.setRSV1( true );
+	}
+
+	private int deflate( int flush, int size ) {
+		while( true ) {
+			if( size == deflated.length ) {
+				deflated = Arrays.copyOf( deflated, deflated.length * 2 );
+			}
+			int space = deflated.length - size;
+			int written = deflater.deflate( deflated, size, space, flush );
+			size += written;
+			if( flush == Deflater.NO_FLUSH ? deflater.needsInput() : written < space ) {
+				return size;
+			}
+		}
+	}
+
+	@Override
+	public boolean acceptProvidedExtensionAsServer( String inputExtension ) {
+		for( String offer : inputExtension.split( "," ) ) {
+			Map<String, String> parameters = parseExtension( offer );
+			if( parameters == null ) {
+				continue;
+			}
+			String serverWindow = parameters.get( SERVER_MAX_WINDOW_BITS );
+			if( serverWindow != null && parseWindowBits( serverWindow ) != MAX_WINDOW_BITS ) {
+				continue;
+			}
+			String clientWindow = parameters.get( CLIENT_MAX_WINDOW_BITS );
+			if( clientWindow != null && clientWindow.length() != 0 && parseWindowBits( clientWindow ) < 0 ) {
+				continue;
+			}
+			deflaterNoContextTakeover = serverNoContextTakeover || parameters.containsKey( SERVER_NO_CONTEXT_TAKEOVER );
+			inflaterNoContextTakeover = clientNoContextTakeover || parameters.containsKey( CLIENT_NO_CONTEXT_TAKEOVER );
+			StringBuilder response = new StringBuilder( EXTENSION_REGISTERED_NAME );
+			if( deflaterNoContextTakeover ) {
+				response.append( "; " ).append( SERVER_NO_CONTEXT_TAKEOVER );
+			}
+			if( inflaterNoContextTakeover ) {
+				response.append( "; " ).append( CLIENT_NO_CONTEXT_TAKEOVER );
+			}
+			responseAsServer = response.toString();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean acceptProvidedExtensionAsClient( String inputExtension ) {
+		for( String response : inputExtension.split( "," ) ) {
+			Map<String, String> parameters = parseExtension( response );
+			if( parameters == null ) {
+				continue;
+			}
+			String serverWindow = parameters.get( SERVER_MAX_WINDOW_BITS );
+			if( serverWindow != null ) {
+				int bits = parseWindowBits( serverWindow );
+				if( bits < 0 || bits > serverMaxWindowBits ) {
+					return false;
+				}
+			}
+			String clientWindow = parameters.get( CLIENT_MAX_WINDOW_BITS );
+			if( clientWindow != null && parseWindowBits( clientWindow ) != MAX_WINDOW_BITS ) {
+				return false;
+			}
+			deflaterNoContextTakeover = clientNoContextTakeover || parameters.containsKey( CLIENT_NO_CONTEXT_TAKEOVER );
+			inflaterNoContextTakeover = serverNoContextTakeover || parameters.containsKey( SERVER_NO_CONTEXT_TAKEOVER );
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the parameters of the extension, or null if it is another extension or the parameters are not valid
+	 */
+	private static Map<String, String> parseExtension( String extension ) {
+		String[] parts = extension.split( ";" );
+		if( !EXTENSION_REGISTERED_NAME.equalsIgnoreCase( parts[0].trim() ) ) {
+			return null;
+		}
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		for( int i = 1; i < parts.length; i++ ) {
+			String[] keyValue = parts[i].split( "=", 2 );
+			String key = keyValue[0].trim().toLowerCase();
+			String value = keyValue.length > 1 ? keyValue[1].trim().replace( "\"", "" ) : "";
+			boolean known = key.equals( SERVER_NO_CONTEXT_TAKEOVER ) || key.equals( CLIENT_NO_CONTEXT_TAKEOVER ) || key.equals( SERVER_MAX_WINDOW_BITS ) || key.equals( CLIENT_MAX_WINDOW_BITS );
+			if( !known || parameters.put( key, value ) != null ) {
+				return null;
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * @return the window bits, or -1 if the value is not valid
+	 */
+	private static int parseWindowBits( String value ) {
+		try {
+			int bits = Integer.parseInt( value );
+			return bits >= MIN_WINDOW_BITS && bits <= MAX_WINDOW_BITS ? bits : -1;
+		} catch ( NumberFormatException e ) {
+			return -1;
+		}
+	}
+
+	@Override
+	public String getProvidedExtensionAsClient() {
+		StringBuilder offer = new StringBuilder( EXTENSION_REGISTERED_NAME );
+		if( clientNoContextTakeover ) {
+			offer.append( "; " ).append( CLIENT_NO_CONTEXT_TAKEOVER );
+		}
+		if( serverNoContextTakeover ) {
+			offer.append( "; " ).append( SERVER_NO_CONTEXT_TAKEOVER );
+		}
+		if( serverMaxWindowBits != MAX_WINDOW_BITS ) {
+			offer.append( "; " ).append( SERVER_MAX_WINDOW_BITS ).append( '=' ).append( serverMaxWindowBits );
+		}
+		return offer.toString();
+	}
+
+	@Override
+	public String getProvidedExtensionAsServer() {
+		return responseAsServer;
+	}
+
+	@Override
+	public IExtension copyInstance() {
+		PerMessageDeflateExtension copy = new PerMessageDeflateExtension();
+		copy.serverMaxWindowBits = serverMaxWindowBits;
+		copy.serverNoContextTakeover = serverNoContextTakeover;
+		copy.clientNoContextTakeover = clientNoContextTakeover;
+		copy.compressionThreshold = compressionThreshold;
+		copy.compressionLevel = compressionLevel;
+		copy.compressBinaryFrames = compressBinaryFrames;
+		copy.maxInflatedSize = maxInflatedSize;
+		return copy;
+	}
+
+	@Override
+	public void reset() {
+		// The draft drops the extension after reset, so the native zlib memory is freed right away instead of by finalization
+		if( deflater != null ) {
+			deflater.end();
+			deflater = null;
+		}
+		if( inflater != null ) {
+			inflater.end();
+			inflater = null;
+		}
+		inflating = false;
+		inflatedMessageSize = 0;
+		deflaterNoContextTakeover = false;
+		inflaterNoContextTakeover = false;
+		responseAsServer = "";
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{threshold: " + compressionThreshold + ", level: " + compressionLevel + ", deflaterNoContextTakeover: " + deflaterNoContextTakeover + ", inflaterNoContextTakeover: " + inflaterNoContextTakeover + "}";
+	}
+}
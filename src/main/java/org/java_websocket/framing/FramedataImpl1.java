@@ -159,7 +159,7 @@ public abstract class FramedataImpl1 implements Framedata {
 
     @Override
     public String toString() {
-        return "Framedata{ optcode:" + getOpcode() + ", fin:" + isFin() + ", rsv1:" + isRSV1() + ", rsv2:" + isRSV2() + ", rsv3:" + isRSV3() + ", payloadlength:[pos:" + unmaskedpayload.position() + ", len:" + unmaskedpayload.remaining() + "], payload:" + ( unmaskedpayload.remaining() > 1000 ? "(too big to display)" : new String( unmaskedpayload.array() ) ) + '}';
+        return "Framedata{ optcode:" + getOpcode() + ", fin:" + isFin() + ", rsv1:" + isRSV1() + ", rsv2:" + isRSV2() + ", rsv3:" + isRSV3() + ", payloadlength:[pos:" + unmaskedpayload.position() + ", len:" + unmaskedpayload.remaining() + "], payload:" + ( unmaskedpayload.remaining() > 1000 ? "(too big to display)" : !unmaskedpayload.hasArray() ? "(not displayable)" : new String( unmaskedpayload.array(), unmaskedpayload.arrayOffset() + unmaskedpayload.position(), unmaskedpayload.remaining() ) ) + '}';
     }
 
     /**
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2010-2019 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of heap ByteBuffers used for decoding of frames, shared by all connections.<br>
+ * Buffers are grouped by power of two capacity. Buffers over the largest size class are allocated
+ * normally and never pooled. A buffer which is not released is simply left to the garbage collector,
+ * the pool keeps no strong reference to acquired buffers.<br>
+ * Only buffers handed out by {@link #acquire(int)} and not released since are taken back, so buffers of others
+ * and buffers released twice are never recycled.
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The pool used by the drafts
+	 */
+	public static final ByteBufferPool SHARED = new ByteBufferPool( 10, 20, 32 );
+
+	private final int minShift;
+	private final int maxShift;
+	private final int maxPooledPerClass;
+	private final SizeClass[] sizeClasses;
+
+	/**
+	 * Backing arrays of the acquired buffers, compared by identity. Weakly referenced, so a buffer
+	 * lost on some path is collected instead of being kept for the life of the pool. No lock is shared by the connections
+	 */
+	private final ConcurrentHashMap<Object, Boolean> acquired = new ConcurrentHashMap<Object, Boolean>();
+	private final ReferenceQueue<byte[]> collected = new ReferenceQueue<byte[]>();
+
+	private static final class SizeClass {
+		final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+		final AtomicInteger freeCount = new AtomicInteger( 0 );
+	}
+
+	/**
+	 * @param minShift          log2 of the smallest pooled capacity
+	 * @param maxShift          log2 of the largest pooled capacity
+	 * @param maxPooledPerClass maximum number of free buffers kept for each capacity
+	 */
+	public ByteBufferPool( int minShift, int maxShift, int maxPooledPerClass ) {
+		if( minShift < 0 || maxShift < minShift || maxShift > 30 ) {
+			throw new IllegalArgumentException();
+		}
+		this.minShift = minShift;
+		this.maxShift = maxShift;
+		this.maxPooledPerClass = maxPooledPerClass;
+		this.sizeClasses = new SizeClass[maxShift - minShift + 1];
+		for( int i = 0; i < sizeClasses.length; i++ ) {
+			sizeClasses[i] = new SizeClass();
+		}
+	}
+
+	/**
+	 * Get a buffer with position 0 and limit size, its capacity may be larger
+	 *
+	 * @param size the required size
+	 * @return the buffer
+	 */
+	public ByteBuffer acquire( int size ) {
+		int sizeClass = sizeClass( size );
+		if( sizeClass < 0 ) {
+			return ByteBuffer.allocate( size );
+		}
+		SizeClass pooled = sizeClasses[sizeClass];
+		ByteBuffer buffer = pooled.free.poll();
+		if( buffer == null ) {
+			buffer = ByteBuffer.allocate( 1 << ( sizeClass + minShift ) );
+		} else {
+			pooled.freeCount.decrementAndGet();
+		}
+		expungeCollected();
+		acquired.put( new WeakArrayKey( buffer.array(), collected ), Boolean.TRUE );
+		buffer.clear();
+		buffer.limit( size );
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer obtained by {@link #acquire(int)}. Nobody may use the buffer after it was released.
+	 * Buffers not acquired from this pool are ignored
+	 *
+	 * @param buffer the buffer to return, may be null
+	 */
+	public void release( ByteBuffer buffer ) {
+		if( !isPooledShape( buffer ) || acquired.remove( new ArrayKey( buffer.array() ) ) == null ) {
+			return;
+		}
+		SizeClass pooled = sizeClasses[Integer.numberOfTrailingZeros( buffer.capacity() ) - minShift];
+		if( pooled.freeCount.incrementAndGet() > maxPooledPerClass ) {
+			pooled.freeCount.decrementAndGet();
+			return;
+		}
+		pooled.free.add( buffer );
+	}
+
+	/**
+	 * Whether the buffer was acquired from this pool and not released yet, such buffers must not be kept by others
+	 *
+	 * @param buffer the buffer to check, may be null
+	 * @return true if the buffer is going to be released to this pool
+	 */
+	public boolean isAcquired( ByteBuffer buffer ) {
+		return isPooledShape( buffer ) && acquired.containsKey( new ArrayKey( buffer.array() ) );
+	}
+
+	private static boolean isPooledShape( ByteBuffer buffer ) {
+		// Slices share the array, but are not the pooled buffer
+		return buffer != null && buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.capacity() == buffer.array().length;
+	}
+
+	private void expungeCollected() {
+		Object key;
+		while( ( key = collected.poll() ) != null ) {
+			acquired.remove( key );
+		}
+	}
+
+	/**
+	 * Key of an acquired array in the map, equal to keys of the same array
+	 */
+	private static final class WeakArrayKey extends WeakReference<byte[]> {
+		private final int hash;
+
+		WeakArrayKey( byte[] array, ReferenceQueue<byte[]> queue ) {
+			super( array, queue );
+			this.hash = System.identityHashCode( array );
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if( this == o ) {
+				return true;
+			}
+			// A collected key equals only itself, so it is removed by its own identity
+			byte[] array = get();
+			return array != null && ( o instanceof ArrayKey ? ( ( ArrayKey ) o ).array == array : o instanceof WeakArrayKey && ( ( WeakArrayKey ) o ).get() == array );
+		}
+	}
+
+	/**
+	 * Short lived key for lookups of an array
+	 */
+	private static final class ArrayKey {
+		private final byte[] array;
+
+		ArrayKey( byte[] array ) {
+			this.array = array;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode( array );
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			return o instanceof WeakArrayKey ? ( ( WeakArrayKey ) o ).get() == array : o instanceof ArrayKey && ( ( ArrayKey ) o ).array == array;
+		}
+	}
+
+	private int sizeClass( int size ) {
+		if( size > ( 1 << maxShift ) ) {
+			return -1;
+		}
+		int shift = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros( size - 1 );
+		return Math.max( shift, minShift ) - minShift;
+	}
+}
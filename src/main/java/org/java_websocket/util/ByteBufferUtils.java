@@ -62,6 +62,42 @@ public class ByteBufferUtils {
 		}
 	}
 
+	/**
+	 * XOR length bytes from source with the websocket masking key and put them to dest, 8 bytes at a time.
+	 * Works for both heap and direct buffers, positions of both buffers are advanced by length.
+	 *
+	 * @param source  the ByteBuffer to read from
+	 * @param dest    the ByteBuffer to write to
+	 * @param maskKey the masking key, first key byte in the most significant position
+	 * @param length  number of bytes to mask
+	 */
+	public static void mask(ByteBuffer source, ByteBuffer dest, int maskKey, int length ) {
+		if( source.remaining() < length || dest.remaining() < length ) {
+			throw new IllegalArgumentException();
+		}
+		final int sp = source.position();
+		final int dp = dest.position();
+		// Duplicates are always big endian, which matches the byte order of the key
+		final ByteBuffer s = source.duplicate();
+		final ByteBuffer d = dest.duplicate();
+
+		final long maskKey8 = ( ( long ) maskKey << 32 ) | ( maskKey & 0xFFFFFFFFL );
+		int i = 0;
+		for( ; i + 8 <= length; i += 8 ) {
+			d.putLong( dp + i, s.getLong( sp + i ) ^ maskKey8 );
+		}
+		if( i + 4 <= length ) {
+			d.putInt( dp + i, s.getInt( sp + i ) ^ maskKey );
+			i += 4;
+		}
+		for( ; i < length; i++ ) {
+			d.put( dp + i, ( byte ) ( s.get( sp + i ) ^ ( maskKey >>> ( 24 - 8 * ( i & 3 ) ) ) ) );
+		}
+
+		source.position( sp + length );
+		dest.position( dp + length );
+	}
+
 	/**
 	 * Get a ByteBuffer with zero capacity
 	 *